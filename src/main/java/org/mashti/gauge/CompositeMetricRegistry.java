@@ -0,0 +1,485 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.mashti.gauge.util.SharedForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MetricRegistry} that, on every {@link #collect() collection}, registers the metrics of its child registries under the name of the child followed by a dot, and the totals of same-named counters, rates, samplers and timers under their own name.
+ * Collected metrics are read-only, and collection resets the intervals of the child metrics, so the children should not be reported elsewhere.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class CompositeMetricRegistry extends MetricRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompositeMetricRegistry.class);
+    private final List<MetricRegistry> registries;
+    private final Map<String, Metric> collected_metrics;
+
+    public CompositeMetricRegistry(String name) {
+
+        super(name);
+        registries = new CopyOnWriteArrayList<>();
+        collected_metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a child registry to this composite.
+     *
+     * @param registry the registry to add
+     * @throws IllegalArgumentException if a registry of the same name is already added
+     */
+    public synchronized void addRegistry(MetricRegistry registry) {
+
+        for (MetricRegistry existing : registries) {
+            if (existing.getName().equals(registry.getName())) { throw new IllegalArgumentException("a registry named " + registry.getName() + " is already added"); }
+        }
+        registries.add(registry);
+    }
+
+    /**
+     * Removes a child registry from this composite.
+     * The metrics of the removed registry are removed from this composite on the next collection.
+     *
+     * @param registry the registry to remove
+     * @return whether the registry was removed
+     */
+    public synchronized boolean removeRegistry(MetricRegistry registry) {
+
+        return registries.remove(registry);
+    }
+
+    public List<MetricRegistry> getRegistries() {
+
+        return new ArrayList<>(registries);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the given name is of a collected metric
+     */
+    @Override
+    public Counter counter(String name) {
+
+        checkNotCollected(name);
+        return super.counter(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the given name is of a collected metric
+     */
+    @Override
+    public Timer timer(String name) {
+
+        checkNotCollected(name);
+        return super.timer(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the given name is of a collected metric
+     */
+    @Override
+    public Rate rate(String name) {
+
+        checkNotCollected(name);
+        return super.rate(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the given name is of a collected metric
+     */
+    @Override
+    public Sampler sampler(String name) {
+
+        checkNotCollected(name);
+        return super.sampler(name);
+    }
+
+    /** Snapshots the child registries in parallel, and updates the detail and the totals of their metrics in this composite. */
+    @Override
+    public synchronized void collect() {
+
+        final List<Callable<List<Collected>>> tasks = new ArrayList<>(registries.size());
+        for (MetricRegistry registry : registries) {
+            tasks.add(new CollectTask(registry));
+        }
+
+        final List<Future<List<Collected>>> results = SharedForkJoinPool.get().invokeAll(tasks);
+
+        final Set<String> names = new HashSet<>();
+        final Map<String, Total> totals = new LinkedHashMap<>();
+        boolean complete = true;
+        for (Future<List<Collected>> result : results) {
+            final List<Collected> collected;
+            try {
+                collected = result.get();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (final ExecutionException e) {
+                LOGGER.error("failed to collect metrics of a child registry of " + getName(), e.getCause());
+                complete = false;
+                continue;
+            }
+
+            for (Collected metric : collected) {
+                updateDetail(metric);
+                names.add(metric.detail_name);
+                if (metric.type == MetricType.COUNTER || metric.type == MetricType.RATE || metric.type == MetricType.SAMPLER || metric.type == MetricType.TIMER) {
+                    final Total total = totals.get(metric.name);
+                    if (total == null) {
+                        totals.put(metric.name, new Total(metric));
+                    }
+                    else {
+                        total.add(metric);
+                    }
+                }
+            }
+        }
+
+        for (Total total : totals.values()) {
+            updateTotal(total);
+            names.add(total.name);
+        }
+
+        // Keep the metrics of a child that failed to collect, rather than removing and re-adding them on the next collection.
+        if (complete) {
+            final Iterator<String> collected_names = collected_metrics.keySet().iterator();
+            while (collected_names.hasNext()) {
+                final String name = collected_names.next();
+                if (!names.contains(name)) {
+                    collected_names.remove();
+                    remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the idle metrics of this composite and of its child registries.
+     *
+     * @return the number of expired metrics
+     */
+    @Override
+    public synchronized int expireIdleMetrics() {
+
+        int expired_count = super.expireIdleMetrics();
+        for (MetricRegistry registry : registries) {
+            expired_count += registry.expireIdleMetrics();
+        }
+        return expired_count;
+    }
+
+    private void updateDetail(Collected metric) {
+
+        final String name = metric.detail_name;
+        switch (metric.type) {
+            case COUNTER:
+                setCount(name, metric.count);
+                break;
+            case RATE:
+                markRate(name, metric.unit, metric.count);
+                break;
+            case SAMPLER:
+                setSamplerSnapshot(name, metric.snapshot);
+                break;
+            case TIMER:
+                setTimerSnapshot(name, metric.unit, metric.snapshot);
+                break;
+            default:
+                if (collected_metrics.get(name) != metric.metric) {
+                    putCollected(name, metric.metric);
+                }
+        }
+    }
+
+    private void updateTotal(Total total) {
+
+        final String name = total.name;
+        switch (total.type) {
+            case COUNTER:
+                setCount(name, total.count);
+                break;
+            case RATE:
+                markRate(name, total.unit, total.count);
+                break;
+            case SAMPLER:
+                setSamplerSnapshot(name, total.getSnapshot());
+                break;
+            case TIMER:
+                setTimerSnapshot(name, total.unit, total.getSnapshot());
+                break;
+            default:
+                throw new IllegalStateException("unexpected total of type " + total.type);
+        }
+    }
+
+    private void setCount(String name, long count) {
+
+        Metric counter = collected_metrics.get(name);
+        if (!(counter instanceof Counter)) {
+            counter = putCollected(name, new Counter());
+        }
+        ((Counter) counter).add(count - ((Counter) counter).get());
+    }
+
+    private void markRate(String name, TimeUnit unit, long count) {
+
+        Metric rate = collected_metrics.get(name);
+        if (!(rate instanceof Rate) || ((Rate) rate).getUnit() != unit) {
+            rate = putCollected(name, new Rate(unit));
+        }
+        ((Rate) rate).mark(count);
+    }
+
+    private void setSamplerSnapshot(String name, Snapshot snapshot) {
+
+        Metric sampler = collected_metrics.get(name);
+        if (!(sampler instanceof CollectedSampler)) {
+            sampler = putCollected(name, new CollectedSampler(new CollectedReservoir(name)));
+        }
+        ((CollectedSampler) sampler).reservoir.set(snapshot);
+    }
+
+    private void setTimerSnapshot(String name, TimeUnit unit, Snapshot snapshot) {
+
+        Metric timer = collected_metrics.get(name);
+        if (!(timer instanceof CollectedTimer) || ((CollectedTimer) timer).getUnit() != unit) {
+            timer = putCollected(name, new CollectedTimer(unit, new CollectedReservoir(name)));
+        }
+        ((CollectedTimer) timer).reservoir.set(snapshot);
+    }
+
+    private void checkNotCollected(String name) {
+
+        if (collected_metrics.containsKey(name)) { throw newCollectedMetricException(name); }
+    }
+
+    private static IllegalArgumentException newCollectedMetricException(String name) {
+
+        return new IllegalArgumentException("metric " + name + " is collected from the child registries and cannot be updated");
+    }
+
+    private Metric putCollected(String name, Metric metric) {
+
+        collected_metrics.put(name, metric);
+        register(name, metric);
+        return metric;
+    }
+
+    private static final class CollectTask implements Callable<List<Collected>> {
+
+        private final MetricRegistry registry;
+
+        private CollectTask(MetricRegistry registry) {
+
+            this.registry = registry;
+        }
+
+        @Override
+        public List<Collected> call() throws Exception {
+
+            registry.collect();
+            final RegistrySnapshot snapshot = registry.getSnapshot();
+            final List<Collected> collected = new ArrayList<>(snapshot.size());
+            for (int index = 0; index < snapshot.size(); index++) {
+                final String name = snapshot.getName(index);
+                final Metric metric = snapshot.getMetric(index);
+                final MetricType type = snapshot.getType(index);
+                final String detail_name = registry.getName() + '.' + name;
+                switch (type) {
+                    case COUNTER:
+                        collected.add(new Collected(name, detail_name, type, metric, ((Counter) metric).get(), null, null));
+                        break;
+                    case RATE:
+                        final Rate rate = (Rate) metric;
+                        collected.add(new Collected(name, detail_name, type, metric, rate.getIntervalAndReset().getCount(), null, rate.getUnit()));
+                        break;
+                    case SAMPLER:
+                        collected.add(new Collected(name, detail_name, type, metric, 0, ((Sampler) metric).getAndReset(), null));
+                        break;
+                    case TIMER:
+                        final Timer timer = (Timer) metric;
+                        collected.add(new Collected(name, detail_name, type, metric, 0, timer.getAndReset(), timer.getUnit()));
+                        break;
+                    default:
+                        collected.add(new Collected(name, detail_name, type, metric, 0, null, null));
+                }
+            }
+            return collected;
+        }
+    }
+
+    private static final class Collected {
+
+        private final String name;
+        private final String detail_name;
+        private final MetricType type;
+        private final Metric metric;
+        private final long count;
+        private final Snapshot snapshot;
+        private final TimeUnit unit;
+
+        private Collected(String name, String detail_name, MetricType type, Metric metric, long count, Snapshot snapshot, TimeUnit unit) {
+
+            this.name = name;
+            this.detail_name = detail_name;
+            this.type = type;
+            this.metric = metric;
+            this.count = count;
+            this.snapshot = snapshot;
+            this.unit = unit;
+        }
+    }
+
+    private static final class Total {
+
+        private final String name;
+        private final MetricType type;
+        private final TimeUnit unit;
+        private long count;
+        private Snapshot[] snapshots;
+        private double[] scales;
+        private int snapshot_count;
+
+        private Total(Collected metric) {
+
+            name = metric.name;
+            type = metric.type;
+            unit = metric.unit;
+            count = metric.count;
+            snapshots = new Snapshot[] {metric.snapshot};
+            scales = new double[] {1};
+            snapshot_count = 1;
+        }
+
+        private void add(Collected metric) {
+
+            if (metric.type != type) {
+                LOGGER.debug("excluded {} from the total of {}, since it is not of type {}", metric.detail_name, name, type);
+                return;
+            }
+
+            count += metric.count;
+            if (snapshot_count == snapshots.length) {
+                snapshots = Arrays.copyOf(snapshots, snapshot_count * 2);
+                scales = Arrays.copyOf(scales, snapshot_count * 2);
+            }
+            snapshots[snapshot_count] = metric.snapshot;
+            scales[snapshot_count] = metric.unit == null ? 1 : (double) metric.unit.toNanos(1) / unit.toNanos(1);
+            snapshot_count++;
+        }
+
+        private Snapshot getSnapshot() {
+
+            return snapshot_count == 1 ? snapshots[0] : MergedSnapshot.merge(snapshots, scales, snapshot_count);
+        }
+    }
+
+    private static final class CollectedReservoir implements Reservoir {
+
+        private final String name;
+        private final AtomicReference<Snapshot> snapshot;
+
+        private CollectedReservoir(String name) {
+
+            this.name = name;
+            snapshot = new AtomicReference<Snapshot>(new UniformSnapshot(new double[0]));
+        }
+
+        private void set(Snapshot snapshot) {
+
+            this.snapshot.set(snapshot);
+        }
+
+        @Override
+        public void update(double sample) {
+
+            throw newCollectedMetricException(name);
+        }
+
+        @Override
+        public Snapshot get() {
+
+            return snapshot.get();
+        }
+
+        @Override
+        public Snapshot getAndReset() {
+
+            return snapshot.getAndSet(new UniformSnapshot(new double[0]));
+        }
+    }
+
+    private static final class CollectedSampler extends Sampler {
+
+        private final CollectedReservoir reservoir;
+
+        private CollectedSampler(CollectedReservoir reservoir) {
+
+            super(reservoir);
+            this.reservoir = reservoir;
+        }
+    }
+
+    private static final class CollectedTimer extends Timer {
+
+        private final CollectedReservoir reservoir;
+
+        private CollectedTimer(TimeUnit unit, CollectedReservoir reservoir) {
+
+            super(unit, reservoir);
+            this.reservoir = reservoir;
+        }
+    }
+}
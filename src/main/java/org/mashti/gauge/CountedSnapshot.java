@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+/**
+ * A {@link Snapshot} whose count is tracked separately from the samples it summarises, for reservoirs and timers that only keep some of the samples they are given.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+final class CountedSnapshot implements Snapshot {
+
+    private final Snapshot samples;
+    private final long count;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param samples the snapshot of the kept samples
+     * @param count the number of all samples, including the ones that are not kept
+     */
+    CountedSnapshot(Snapshot samples, long count) {
+
+        this.samples = samples;
+        this.count = count;
+    }
+
+    @Override
+    public long getN() {
+
+        return count;
+    }
+
+    @Override
+    public double getMin() {
+
+        return samples.getMin();
+    }
+
+    @Override
+    public double getMean() {
+
+        return samples.getMean();
+    }
+
+    @Override
+    public double getMax() {
+
+        return samples.getMax();
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return samples.getStandardDeviation();
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        return samples.getPercentile(percentile);
+    }
+}
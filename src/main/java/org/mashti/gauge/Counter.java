@@ -67,4 +67,10 @@ public class Counter implements Metric {
 
         return adder.sumThenReset();
     }
+
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitCounter(this);
+    }
 }
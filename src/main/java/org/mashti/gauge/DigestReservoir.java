@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.mashti.gauge.util.TDigest;
+
+/**
+ * A {@link Reservoir} that summarises every sample in a {@link TDigest}, holding at most three digests of about {@code 80 * compression} bytes each.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class DigestReservoir implements Reservoir {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+    private static final int MAX_STRIPE_COUNT = 2;
+    private final double compression;
+    private final AtomicReferenceArray<TDigest> stripes;
+    private final int stripe_mask;
+    private final TDigest collected;
+
+    public DigestReservoir() {
+
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public DigestReservoir(double compression) {
+
+        this.compression = compression;
+        final int stripe_count = Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), MAX_STRIPE_COUNT);
+        stripes = new AtomicReferenceArray<>(stripe_count);
+        stripe_mask = stripe_count - 1;
+        collected = new TDigest(compression);
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final TDigest stripe = getStripe();
+        synchronized (stripe) {
+            stripe.add(sample);
+        }
+    }
+
+    @Override
+    public DigestSnapshot get() {
+
+        return collect(false);
+    }
+
+    @Override
+    public DigestSnapshot getAndReset() {
+
+        return collect(true);
+    }
+
+    private DigestSnapshot collect(boolean reset) {
+
+        synchronized (collected) {
+            collected.reset();
+            for (int index = 0; index < stripes.length(); index++) {
+                final TDigest stripe = stripes.get(index);
+                if (stripe != null) {
+                    synchronized (stripe) {
+                        collected.add(stripe);
+                        if (reset) {
+                            stripe.reset();
+                        }
+                    }
+                }
+            }
+            return new DigestSnapshot(collected);
+        }
+    }
+
+    private TDigest getStripe() {
+
+        final int index = (int) Thread.currentThread().getId() & stripe_mask;
+        TDigest stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new TDigest(compression));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+}
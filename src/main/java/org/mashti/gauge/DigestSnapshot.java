@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.mashti.gauge.util.TDigest;
+
+/**
+ * An immutable {@link Snapshot} of a {@link TDigest}.
+ * Snapshots of digests can be {@link #merge(DigestSnapshot) merged}, for example to combine the distributions recorded by samplers across registries.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class DigestSnapshot implements Snapshot {
+
+    private final TDigest digest;
+
+    /**
+     * Constructs a new snapshot of the given digest.
+     * The given digest is copied, and may be modified after construction.
+     *
+     * @param digest the digest to take a snapshot of
+     */
+    public DigestSnapshot(TDigest digest) {
+
+        this.digest = digest.copy();
+    }
+
+    /**
+     * Merges this snapshot with the given snapshot.
+     *
+     * @param other the snapshot to merge with
+     * @return a new snapshot that summarises the samples of both this and the given snapshot
+     */
+    public DigestSnapshot merge(DigestSnapshot other) {
+
+        final TDigest merged = new TDigest(Math.max(digest.getCompression(), other.digest.getCompression()));
+        merged.add(digest);
+        merged.add(other.digest);
+        return new DigestSnapshot(merged);
+    }
+
+    @Override
+    public long getN() {
+
+        return digest.getCount();
+    }
+
+    @Override
+    public double getMin() {
+
+        return digest.getMin();
+    }
+
+    @Override
+    public double getMean() {
+
+        return digest.getMean();
+    }
+
+    @Override
+    public double getMax() {
+
+        return digest.getMax();
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return Math.sqrt(digest.getVariance());
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        return digest.quantile(percentile / 100);
+    }
+}
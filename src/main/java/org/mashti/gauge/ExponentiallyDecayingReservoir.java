@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.mashti.gauge.util.LongAdder;
+
+/**
+ * A {@link Reservoir} that keeps a fixed-size sample biased towards roughly the last five minutes, using <a href="http://dimacs.rutgers.edu/~graham/pubs/papers/fwddecay.pdf">forward decay</a>.
+ * The count of its snapshots is the number of updates, and {@link #getAndReset()} only resets the count.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class ExponentiallyDecayingReservoir implements Reservoir {
+
+    public static final int DEFAULT_SIZE = 1028;
+    public static final double DEFAULT_ALPHA = 0.015;
+    private static final long RESCALE_THRESHOLD_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final int size;
+    private final double alpha;
+    private final double[] values;
+    private final double[] weights;
+    private final double[] priorities;
+    private final LongAdder updates;
+    private int count;
+    private volatile double lowest_priority;
+    private volatile long landmark_nanos;
+
+    public ExponentiallyDecayingReservoir() {
+
+        this(DEFAULT_SIZE, DEFAULT_ALPHA);
+    }
+
+    /**
+     * Constructs a new reservoir.
+     *
+     * @param size the maximum number of samples to keep
+     * @param alpha the exponential decay factor per second; the higher the factor, the more biased the reservoir is towards recent samples
+     */
+    public ExponentiallyDecayingReservoir(int size, double alpha) {
+
+        if (size < 1) { throw new IllegalArgumentException("size must be at least 1"); }
+
+        this.size = size;
+        this.alpha = alpha;
+        values = new double[size];
+        weights = new double[size];
+        priorities = new double[size];
+        updates = new LongAdder();
+        landmark_nanos = System.nanoTime();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        updates.increment();
+        final long now = System.nanoTime();
+        final double uniform = 1 - ThreadLocalRandom.current().nextDouble();
+        if (weight(now - landmark_nanos) / uniform > lowest_priority) {
+            offer(sample, uniform, now);
+        }
+    }
+
+    @Override
+    public Snapshot get() {
+
+        return new CountedSnapshot(getSamples(), updates.sum());
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        return new CountedSnapshot(getSamples(), updates.sumThenReset());
+    }
+
+    private synchronized Snapshot getSamples() {
+
+        rescaleIfNeeded(System.nanoTime());
+        return new WeightedSnapshot(values, weights, count);
+    }
+
+    private synchronized void offer(double sample, double uniform, long now) {
+
+        rescaleIfNeeded(now);
+
+        final double weight = weight(now - landmark_nanos);
+        final double priority = weight / uniform;
+        if (count < size) {
+            siftUp(count++, sample, weight, priority);
+        }
+        else if (priority > priorities[0]) {
+            siftDown(0, sample, weight, priority);
+        }
+        else {
+            return;
+        }
+
+        if (count == size) {
+            lowest_priority = priorities[0];
+        }
+    }
+
+    private void rescaleIfNeeded(long now) {
+
+        final long elapsed = now - landmark_nanos;
+        if (elapsed >= RESCALE_THRESHOLD_NANOS) {
+            final double factor = 1 / weight(elapsed);
+            for (int i = 0; i < count; i++) {
+                weights[i] *= factor;
+                priorities[i] *= factor;
+            }
+            landmark_nanos = now;
+            if (count == size) {
+                lowest_priority = priorities[0];
+            }
+        }
+    }
+
+    private double weight(long elapsed_nanos) {
+
+        return Math.exp(alpha * (elapsed_nanos / NANOS_PER_SECOND));
+    }
+
+    private void siftUp(int index, double value, double weight, double priority) {
+
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            set(index, values[parent], weights[parent], priorities[parent]);
+            index = parent;
+        }
+        set(index, value, weight, priority);
+    }
+
+    private void siftDown(int index, double value, double weight, double priority) {
+
+        final int half = count >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < count && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            set(index, values[child], weights[child], priorities[child]);
+            index = child;
+        }
+        set(index, value, weight, priority);
+    }
+
+    private void set(int index, double value, double weight, double priority) {
+
+        values[index] = value;
+        weights[index] = weight;
+        priorities[index] = priority;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An exponentially weighted moving average of a rate, which is updated by {@link #tick(long) ticks} at a fixed {@link #TICK_INTERVAL_NANOS interval}.
+ * Ticks must be serialised by the owner, while the rate may be read concurrently.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class ExponentiallyWeightedMovingAverage {
+
+    /** The interval between ticks in nanoseconds. */
+    public static final long TICK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    public static final double ONE_MINUTE_ALPHA = alphaOf(1, TimeUnit.MINUTES);
+    public static final double FIVE_MINUTES_ALPHA = alphaOf(5, TimeUnit.MINUTES);
+    public static final double FIFTEEN_MINUTES_ALPHA = alphaOf(15, TimeUnit.MINUTES);
+    private final double alpha;
+    private volatile double rate_per_nano;
+    private boolean initialised;
+
+    /**
+     * Constructs a new moving average.
+     *
+     * @param alpha the smoothing factor per tick, in {@code (0, 1]}; the higher the factor, the more weight is given to recent ticks
+     */
+    public ExponentiallyWeightedMovingAverage(double alpha) {
+
+        if (!(alpha > 0 && alpha <= 1)) { throw new IllegalArgumentException("alpha must be within (0, 1]"); }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Gets the smoothing factor per tick of a moving average whose weights decay by a factor of {@code e} over the given window.
+     *
+     * @param window the window of the moving average
+     * @param unit the unit of the window
+     * @return the smoothing factor per tick
+     */
+    public static double alphaOf(long window, TimeUnit unit) {
+
+        if (window < 1) { throw new IllegalArgumentException("window must be at least 1"); }
+        return 1 - Math.exp(-(double) TICK_INTERVAL_NANOS / unit.toNanos(window));
+    }
+
+    /**
+     * Folds the given number of events since the previous tick into the average.
+     *
+     * @param count the number of events since the previous tick
+     */
+    public void tick(long count) {
+
+        tick(count, 1);
+    }
+
+    /**
+     * Folds the given number of events over the given number of ticks into the average, as if the events were spread evenly across the ticks.
+     * This is equivalent to, but cheaper than, calling {@link #tick(long)} once per tick with an equal share of the events.
+     *
+     * @param count the number of events since the previous tick
+     * @param tick_count the number of ticks since the previous tick
+     */
+    public void tick(long count, long tick_count) {
+
+        if (tick_count < 1) { throw new IllegalArgumentException("tick count must be at least 1"); }
+
+        final double instant_rate = (double) count / tick_count / TICK_INTERVAL_NANOS;
+        if (initialised) {
+            rate_per_nano = instant_rate + (rate_per_nano - instant_rate) * Math.pow(1 - alpha, tick_count);
+        }
+        else {
+            rate_per_nano = instant_rate;
+            initialised = true;
+        }
+    }
+
+    /**
+     * Gets the average rate.
+     *
+     * @param unit the unit of time
+     * @return the average number of events per the given unit of time
+     */
+    public double getRate(TimeUnit unit) {
+
+        return rate_per_nano * unit.toNanos(1);
+    }
+
+    public double getAlpha() {
+
+        return alpha;
+    }
+}
@@ -26,7 +26,13 @@
  */
 package org.mashti.gauge;
 
-/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+/**
+ * A metric that reports a value on demand.
+ * Gauges should extend {@link AbstractGauge}, which implements {@link #accept(MetricVisitor)}.
+ *
+ * @param <Value> the type of the value of this gauge
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
 public interface Gauge<Value> extends Metric {
 
     Value get();
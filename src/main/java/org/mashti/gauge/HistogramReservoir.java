@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.mashti.gauge.util.LogLinearHistogram;
+import org.mashti.gauge.util.WriterReaderPhaser;
+
+/**
+ * A {@link Reservoir} that counts every sample of an interval in a {@link LogLinearHistogram}, in constant space and without locking.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class HistogramReservoir implements Reservoir {
+
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+    public static final double DEFAULT_LOWEST_DISCERNIBLE_VALUE = 1e-3;
+    public static final double DEFAULT_HIGHEST_TRACKABLE_VALUE = 1e13;
+    private final int significant_digits;
+    private final double lowest_discernible_value;
+    private final double highest_trackable_value;
+    private final WriterReaderPhaser phaser;
+    private volatile LogLinearHistogram active;
+    private LogLinearHistogram inactive;
+
+    public HistogramReservoir() {
+
+        this(DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    public HistogramReservoir(int significant_digits) {
+
+        this(significant_digits, DEFAULT_LOWEST_DISCERNIBLE_VALUE, DEFAULT_HIGHEST_TRACKABLE_VALUE);
+    }
+
+    public HistogramReservoir(int significant_digits, double lowest_discernible_value, double highest_trackable_value) {
+
+        this.significant_digits = significant_digits;
+        this.lowest_discernible_value = lowest_discernible_value;
+        this.highest_trackable_value = highest_trackable_value;
+        phaser = new WriterReaderPhaser();
+        active = newHistogram();
+        inactive = newHistogram();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final long critical_value = phaser.writerCriticalSectionEnter();
+        try {
+            active.record(sample);
+        }
+        finally {
+            phaser.writerCriticalSectionExit(critical_value);
+        }
+    }
+
+    @Override
+    public Snapshot get() {
+
+        return new HistogramSnapshot(active);
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        phaser.readerLock();
+        try {
+            final LogLinearHistogram sampled = active;
+            inactive.reset();
+            active = inactive;
+            inactive = sampled;
+            phaser.flipPhase();
+            return new HistogramSnapshot(sampled);
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    private LogLinearHistogram newHistogram() {
+
+        return new LogLinearHistogram(significant_digits, lowest_discernible_value, highest_trackable_value);
+    }
+}
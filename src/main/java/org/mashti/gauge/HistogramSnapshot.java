@@ -0,0 +1,218 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+import org.mashti.gauge.util.LogLinearHistogram;
+
+/**
+ * An immutable {@link Snapshot} of the non-empty buckets of a {@link LogLinearHistogram}, whose percentiles are bounded by the exact minimum and maximum.
+ * Snapshots with the same buckets can be {@link #merge(HistogramSnapshot) merged} without loss of precision.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class HistogramSnapshot implements Snapshot {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private final int significant_digits;
+    private final double lowest_discernible_value;
+    private final double highest_trackable_value;
+    private final double[] values;
+    private final long[] cumulative_counts;
+    private final long n;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double standard_deviation;
+
+    public HistogramSnapshot(LogLinearHistogram histogram) {
+
+        this(histogram.getSignificantDigits(), histogram.getLowestDiscernibleValue(), histogram.getHighestTrackableValue(), bucketsOf(histogram), histogram.getMin(), histogram.getMax());
+    }
+
+    private HistogramSnapshot(int significant_digits, double lowest_discernible_value, double highest_trackable_value, Buckets buckets, double min, double max) {
+
+        this.significant_digits = significant_digits;
+        this.lowest_discernible_value = lowest_discernible_value;
+        this.highest_trackable_value = highest_trackable_value;
+        values = Arrays.copyOf(buckets.values, buckets.length);
+        cumulative_counts = Arrays.copyOf(buckets.cumulative_counts, buckets.length);
+
+        n = buckets.total;
+        if (n == 0) {
+            this.min = Double.NaN;
+            this.max = Double.NaN;
+            mean = Double.NaN;
+            standard_deviation = Double.NaN;
+        }
+        else {
+            this.min = min;
+            this.max = max;
+
+            double sum = 0;
+            for (int i = 0; i < values.length; i++) {
+                sum += values[i] * getCount(i);
+            }
+            mean = sum / n;
+
+            double squared_deviations = 0;
+            for (int i = 0; i < values.length; i++) {
+                final double deviation = values[i] - mean;
+                squared_deviations += deviation * deviation * getCount(i);
+            }
+            standard_deviation = n == 1 ? 0 : Math.sqrt(squared_deviations / (n - 1));
+        }
+    }
+
+    /**
+     * Checks whether this snapshot is taken from a histogram with the same significant digits and range as the histogram of the given snapshot.
+     *
+     * @param other the snapshot to check
+     * @return whether this and the given snapshot have the same buckets
+     */
+    public boolean hasSameBuckets(HistogramSnapshot other) {
+
+        return significant_digits == other.significant_digits && lowest_discernible_value == other.lowest_discernible_value && highest_trackable_value == other.highest_trackable_value;
+    }
+
+    /**
+     * Merges this snapshot with the given snapshot by adding up the counts of their buckets.
+     *
+     * @param other the snapshot to merge with, which must have the same buckets as this snapshot
+     * @return a new snapshot that summarises the samples of both this and the given snapshot
+     * @throws IllegalArgumentException if the given snapshot has different buckets
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+
+        if (!hasSameBuckets(other)) { throw new IllegalArgumentException("snapshots must have the same buckets"); }
+
+        final Buckets merged = new Buckets();
+        int i = 0;
+        int j = 0;
+        while (i < values.length || j < other.values.length) {
+            if (j == other.values.length || i < values.length && values[i] < other.values[j]) {
+                merged.add(values[i], getCount(i++));
+            }
+            else if (i == values.length || other.values[j] < values[i]) {
+                merged.add(other.values[j], other.getCount(j++));
+            }
+            else {
+                merged.add(values[i], getCount(i++) + other.getCount(j++));
+            }
+        }
+        return new HistogramSnapshot(significant_digits, lowest_discernible_value, highest_trackable_value, merged, minOf(min, other.min), maxOf(max, other.max));
+    }
+
+    @Override
+    public long getN() {
+
+        return n;
+    }
+
+    @Override
+    public double getMin() {
+
+        return min;
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return max;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        if (n == 0) { return Double.NaN; }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        int index = Arrays.binarySearch(cumulative_counts, rank);
+        if (index < 0) {
+            index = Math.min(-index - 1, values.length - 1);
+        }
+        return Math.min(Math.max(values[index], min), max);
+    }
+
+    private long getCount(int index) {
+
+        return cumulative_counts[index] - (index == 0 ? 0 : cumulative_counts[index - 1]);
+    }
+
+    private static double minOf(double first, double second) {
+
+        return Double.isNaN(first) ? second : Double.isNaN(second) ? first : Math.min(first, second);
+    }
+
+    private static double maxOf(double first, double second) {
+
+        return Double.isNaN(first) ? second : Double.isNaN(second) ? first : Math.max(first, second);
+    }
+
+    private static Buckets bucketsOf(LogLinearHistogram histogram) {
+
+        final Buckets buckets = new Buckets();
+        for (int index = 0; index < histogram.getBucketCount(); index++) {
+            final long count = histogram.getCount(index);
+            if (count > 0) {
+                buckets.add(histogram.getEquivalentValue(index), count);
+            }
+        }
+        return buckets;
+    }
+
+    private static final class Buckets {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+        private long[] cumulative_counts = new long[INITIAL_CAPACITY];
+        private int length;
+        private long total;
+
+        private void add(double value, long count) {
+
+            if (length == values.length) {
+                values = Arrays.copyOf(values, length * 2);
+                cumulative_counts = Arrays.copyOf(cumulative_counts, length * 2);
+            }
+            total += count;
+            values[length] = value;
+            cumulative_counts[length++] = total;
+        }
+    }
+}
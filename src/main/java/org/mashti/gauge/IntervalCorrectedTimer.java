@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Timer} that corrects for coordinated omission by also recording a distribution in which every timing that is longer than the expected interval is back-filled with the synthetic samples {@code timing - interval}, {@code timing - 2 * interval}, and so on.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class IntervalCorrectedTimer extends Timer {
+
+    private final Sampler corrected;
+    private final long expected_interval;
+
+    public IntervalCorrectedTimer(long expected_interval, TimeUnit interval_unit) {
+
+        this(TimeUnit.NANOSECONDS, expected_interval, interval_unit);
+    }
+
+    public IntervalCorrectedTimer(TimeUnit unit, long expected_interval, TimeUnit interval_unit) {
+
+        this(unit, new HistogramReservoir(), new HistogramReservoir(), expected_interval, interval_unit);
+    }
+
+    public IntervalCorrectedTimer(TimeUnit unit, Reservoir raw, Reservoir corrected, long expected_interval, TimeUnit interval_unit) {
+
+        super(unit, raw);
+        this.expected_interval = unit.convert(expected_interval, interval_unit);
+        if (this.expected_interval <= 0) { throw new IllegalArgumentException("expected interval must be at least one " + unit); }
+        this.corrected = new Sampler(corrected);
+    }
+
+    @Override
+    public void update(long length, TimeUnit unit) {
+
+        super.update(length, unit);
+
+        final long timing = getUnit().convert(length, unit);
+        corrected.update(timing);
+        for (long missing = timing - expected_interval; missing >= expected_interval; missing -= expected_interval) {
+            corrected.update(missing);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the corrected distribution and resets it.
+     *
+     * @return a snapshot of the corrected distribution prior to reset
+     */
+    public Snapshot getCorrectedAndReset() {
+
+        return corrected.getAndReset();
+    }
+
+    /**
+     * Gets the expected interval between timed operations in the {@link #getUnit() unit} of this timer.
+     *
+     * @return the expected interval between timed operations
+     */
+    public long getExpectedInterval() {
+
+        return expected_interval;
+    }
+}
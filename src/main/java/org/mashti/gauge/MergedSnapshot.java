@@ -0,0 +1,210 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+/**
+ * A {@link Snapshot} of the union of the samples of several, optionally scaled, snapshots, whose moments are exact.
+ * Percentiles are exact if the snapshots are all digests, or all histograms with the same buckets, and are otherwise estimated from {@link #QUANTILE_POINTS} quantile points per snapshot.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+final class MergedSnapshot implements Snapshot {
+
+    static final int QUANTILE_POINTS = 201;
+    private final Snapshot percentiles;
+    private final double percentile_scale;
+    private final long n;
+    private final double min;
+    private final double mean;
+    private final double max;
+    private final double standard_deviation;
+
+    /**
+     * Constructs a new snapshot of the union of the samples of the given snapshots.
+     *
+     * @param snapshots the snapshots to merge
+     * @param scales the factor by which to multiply the samples of each snapshot
+     * @param length the number of snapshots to take from the given arrays
+     */
+    MergedSnapshot(Snapshot[] snapshots, double[] scales, int length) {
+
+        final Snapshot[] non_empty_snapshots = new Snapshot[length];
+        final double[] non_empty_scales = new double[length];
+        int non_empty = 0;
+
+        long n = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean = 0;
+        double squared_deviations = 0;
+        for (int i = 0; i < length; i++) {
+            final Snapshot snapshot = snapshots[i];
+            final long snapshot_n = snapshot.getN();
+            if (snapshot_n == 0) {
+                continue;
+            }
+
+            final double scale = scales[i];
+            final double snapshot_mean = snapshot.getMean() * scale;
+            final double snapshot_deviation = snapshot.getStandardDeviation() * scale;
+            final long merged_n = n + snapshot_n;
+            final double delta = snapshot_mean - mean;
+            mean += delta * snapshot_n / merged_n;
+            squared_deviations += snapshot_deviation * snapshot_deviation * (snapshot_n - 1) + delta * delta * n * snapshot_n / merged_n;
+            n = merged_n;
+            min = Math.min(min, snapshot.getMin() * scale);
+            max = Math.max(max, snapshot.getMax() * scale);
+
+            non_empty_snapshots[non_empty] = snapshot;
+            non_empty_scales[non_empty++] = scale;
+        }
+
+        final Snapshot exact_percentiles = mergeExactly(non_empty_snapshots, non_empty_scales, non_empty);
+        if (exact_percentiles != null) {
+            percentiles = exact_percentiles;
+            percentile_scale = non_empty_scales[0];
+        }
+        else {
+            percentiles = mergeQuantilePoints(non_empty_snapshots, non_empty_scales, non_empty);
+            percentile_scale = 1;
+        }
+
+        this.n = n;
+        if (n == 0) {
+            this.min = Double.NaN;
+            this.mean = Double.NaN;
+            this.max = Double.NaN;
+            standard_deviation = Double.NaN;
+        }
+        else {
+            this.min = min;
+            this.mean = mean;
+            this.max = max;
+            standard_deviation = n == 1 ? 0 : Math.sqrt(Math.max(0, squared_deviations / (n - 1)));
+        }
+    }
+
+    /**
+     * Merges the given snapshots into a {@link MomentsSnapshot} if they are all moments snapshots, or into a merged snapshot otherwise.
+     *
+     * @param snapshots the snapshots to merge
+     * @param scales the factor by which to multiply the samples of each snapshot
+     * @param length the number of snapshots to take from the given arrays
+     * @return a snapshot of the union of the samples of the given snapshots
+     */
+    static Snapshot merge(Snapshot[] snapshots, double[] scales, int length) {
+
+        final MergedSnapshot merged = new MergedSnapshot(snapshots, scales, length);
+        for (int i = 0; i < length; i++) {
+            if (!(snapshots[i] instanceof MomentsSnapshot)) { return merged; }
+        }
+        return new MomentsSnapshot(merged.n, merged.min, merged.mean, merged.max, merged.standard_deviation);
+    }
+
+    @Override
+    public long getN() {
+
+        return n;
+    }
+
+    @Override
+    public double getMin() {
+
+        return min;
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return max;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        return percentiles == null ? Double.NaN : percentiles.getPercentile(percentile) * percentile_scale;
+    }
+
+    private static Snapshot mergeExactly(Snapshot[] snapshots, double[] scales, int length) {
+
+        if (length == 0) { return null; }
+        for (int i = 1; i < length; i++) {
+            if (scales[i] != scales[0]) { return null; }
+        }
+
+        if (snapshots[0] instanceof DigestSnapshot) {
+            DigestSnapshot merged = (DigestSnapshot) snapshots[0];
+            for (int i = 1; i < length; i++) {
+                if (!(snapshots[i] instanceof DigestSnapshot)) { return null; }
+                merged = merged.merge((DigestSnapshot) snapshots[i]);
+            }
+            return merged;
+        }
+
+        if (snapshots[0] instanceof HistogramSnapshot) {
+            HistogramSnapshot merged = (HistogramSnapshot) snapshots[0];
+            for (int i = 1; i < length; i++) {
+                if (!(snapshots[i] instanceof HistogramSnapshot) || !merged.hasSameBuckets((HistogramSnapshot) snapshots[i])) { return null; }
+                merged = merged.merge((HistogramSnapshot) snapshots[i]);
+            }
+            return merged;
+        }
+
+        return null;
+    }
+
+    private static Snapshot mergeQuantilePoints(Snapshot[] snapshots, double[] scales, int length) {
+
+        final double[] points = new double[length * QUANTILE_POINTS];
+        final double[] weights = new double[points.length];
+        int point_count = 0;
+        for (int i = 0; i < length; i++) {
+            final Snapshot snapshot = snapshots[i];
+            if (!Double.isNaN(snapshot.getPercentile(50))) {
+                final double weight = (double) snapshot.getN() / QUANTILE_POINTS;
+                for (int point = 0; point < QUANTILE_POINTS; point++) {
+                    points[point_count] = snapshot.getPercentile(100.0 * point / (QUANTILE_POINTS - 1)) * scales[i];
+                    weights[point_count] = weight;
+                    point_count++;
+                }
+            }
+        }
+        return point_count == 0 ? null : new WeightedSnapshot(points, weights, point_count);
+    }
+}
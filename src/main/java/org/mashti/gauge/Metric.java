@@ -28,4 +28,11 @@ package org.mashti.gauge;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
 public interface Metric {
+
+    /**
+     * Calls the callback of the given visitor that corresponds to the type of this metric.
+     *
+     * @param visitor the visitor of this metric
+     */
+    void accept(MetricVisitor visitor);
 }
@@ -0,0 +1,296 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A family of metrics of the same type that are distinguished by the values of a fixed set of labels, such as the method and status of HTTP requests.
+ * String label values should be interned or constant, so that children are resolved without allocation.
+ *
+ * @param <T> the type of metrics in this family
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class MetricFamily<T extends Metric> implements Metric {
+
+    private static final int INITIAL_TABLE_SIZE = 16;
+    private static final int MAX_LABEL_COUNT = 3;
+    private final String[] label_names;
+    private final Factory<T> factory;
+    private volatile Child<T>[] table;
+    private volatile Child<T>[] children;
+
+    /**
+     * Constructs a new metric family.
+     *
+     * @param factory the factory of children
+     * @param label_names the names of labels, of which there must be between one and three
+     */
+    public MetricFamily(Factory<T> factory, String... label_names) {
+
+        if (label_names.length < 1 || label_names.length > MAX_LABEL_COUNT) { throw new IllegalArgumentException("a family must have between one and " + MAX_LABEL_COUNT + " labels"); }
+
+        this.factory = factory;
+        this.label_names = label_names.clone();
+        table = newChildArray(INITIAL_TABLE_SIZE);
+        children = newChildArray(0);
+    }
+
+    public static MetricFamily<Counter> counters(String... label_names) {
+
+        return new MetricFamily<>(new Factory<Counter>() {
+
+            @Override
+            public Counter newMetric() {
+
+                return new Counter();
+            }
+        }, label_names);
+    }
+
+    public static MetricFamily<Rate> rates(String... label_names) {
+
+        return new MetricFamily<>(new Factory<Rate>() {
+
+            @Override
+            public Rate newMetric() {
+
+                return new Rate();
+            }
+        }, label_names);
+    }
+
+    public static MetricFamily<Timer> timers(String... label_names) {
+
+        return new MetricFamily<>(new Factory<Timer>() {
+
+            @Override
+            public Timer newMetric() {
+
+                return new Timer();
+            }
+        }, label_names);
+    }
+
+    public static MetricFamily<Sampler> samplers(String... label_names) {
+
+        return new MetricFamily<>(new Factory<Sampler>() {
+
+            @Override
+            public Sampler newMetric() {
+
+                return new Sampler();
+            }
+        }, label_names);
+    }
+
+    public T get(Object value) {
+
+        return get(1, value, null, null, 0, false);
+    }
+
+    public T get(long value) {
+
+        return get(1, null, null, null, value, true);
+    }
+
+    public T get(Object value0, Object value1) {
+
+        return get(2, value0, value1, null, 0, false);
+    }
+
+    public T get(Object value0, long value1) {
+
+        return get(2, value0, null, null, value1, true);
+    }
+
+    public T get(Object value0, Object value1, Object value2) {
+
+        return get(3, value0, value1, value2, 0, false);
+    }
+
+    public T get(Object value0, Object value1, long value2) {
+
+        return get(3, value0, value1, null, value2, true);
+    }
+
+    public List<String> getLabelNames() {
+
+        return Collections.unmodifiableList(Arrays.asList(label_names));
+    }
+
+    /**
+     * Gets the children of this family in the order of their creation.
+     *
+     * @return the children of this family
+     */
+    public List<Child<T>> getChildren() {
+
+        return Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitFamily(this);
+    }
+
+    private T get(int label_count, Object value0, Object value1, Object value2, long number, boolean last_is_number) {
+
+        if (label_count != label_names.length) { throw new IllegalArgumentException("expected " + label_names.length + " label values but got " + label_count); }
+
+        final int hash = hash(label_count, value0, value1, value2, number, last_is_number);
+        final Child<T> child = find(table, hash, label_count, value0, value1, value2, number, last_is_number);
+        return child != null ? child.metric : create(hash, label_count, value0, value1, value2, number, last_is_number);
+    }
+
+    private synchronized T create(int hash, int label_count, Object value0, Object value1, Object value2, long number, boolean last_is_number) {
+
+        final Child<T> existing = find(table, hash, label_count, value0, value1, value2, number, last_is_number);
+        if (existing != null) { return existing.metric; }
+
+        final Object[] values = new Object[label_count];
+        for (int index = 0; index < label_count; index++) {
+            final boolean numeric = last_is_number && index == label_count - 1;
+            final Object value = numeric ? Long.valueOf(number) : valueAt(index, value0, value1, value2);
+            if (value == null) { throw new NullPointerException("label value of " + label_names[index] + " must not be null"); }
+            values[index] = value;
+        }
+
+        final Child<T> child = new Child<>(hash, values, factory.newMetric());
+        final Child<T>[] current_children = children;
+        final Child<T>[] new_children = Arrays.copyOf(current_children, current_children.length + 1);
+        new_children[current_children.length] = child;
+
+        final Child<T>[] current_table = table;
+        final int table_size = new_children.length * 2 > current_table.length ? current_table.length * 2 : current_table.length;
+        table = newTable(table_size, new_children);
+        children = new_children;
+        return child.metric;
+    }
+
+    private static <T extends Metric> Child<T>[] newTable(int size, Child<T>[] children) {
+
+        final Child<T>[] table = newChildArray(size);
+        for (Child<T> child : children) {
+            int index = child.hash & size - 1;
+            while (table[index] != null) {
+                index = index + 1 & size - 1;
+            }
+            table[index] = child;
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Metric> Child<T>[] newChildArray(int length) {
+
+        return (Child<T>[]) new Child<?>[length];
+    }
+
+    private static <T extends Metric> Child<T> find(Child<T>[] table, int hash, int label_count, Object value0, Object value1, Object value2, long number, boolean last_is_number) {
+
+        final int mask = table.length - 1;
+        for (int index = hash & mask; ; index = index + 1 & mask) {
+            final Child<T> child = table[index];
+            if (child == null) { return null; }
+            if (child.hash == hash && child.matches(label_count, value0, value1, value2, number, last_is_number)) { return child; }
+        }
+    }
+
+    private static int hash(int label_count, Object value0, Object value1, Object value2, long number, boolean last_is_number) {
+
+        int hash = 0;
+        for (int index = 0; index < label_count; index++) {
+            final boolean numeric = last_is_number && index == label_count - 1;
+            final Object value = valueAt(index, value0, value1, value2);
+            hash = 31 * hash + (numeric ? (int) (number ^ number >>> 32) : value == null ? 0 : value.hashCode());
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    private static Object valueAt(int index, Object value0, Object value1, Object value2) {
+
+        return index == 0 ? value0 : index == 1 ? value1 : value2;
+    }
+
+    /**
+     * Creates the children of a family.
+     *
+     * @param <T> the type of children
+     */
+    public interface Factory<T extends Metric> {
+
+        T newMetric();
+    }
+
+    /**
+     * A metric in a family along with its label values.
+     *
+     * @param <T> the type of metric
+     */
+    public static final class Child<T extends Metric> {
+
+        private final int hash;
+        private final Object[] values;
+        private final T metric;
+
+        private Child(int hash, Object[] values, T metric) {
+
+            this.hash = hash;
+            this.values = values;
+            this.metric = metric;
+        }
+
+        public List<Object> getLabelValues() {
+
+            return Collections.unmodifiableList(Arrays.asList(values));
+        }
+
+        public T getMetric() {
+
+            return metric;
+        }
+
+        private boolean matches(int label_count, Object value0, Object value1, Object value2, long number, boolean last_is_number) {
+
+            for (int index = 0; index < label_count; index++) {
+                final Object value = values[index];
+                if (last_is_number && index == label_count - 1) {
+                    if (!(value instanceof Long) || (Long) value != number) { return false; }
+                }
+                else {
+                    final Object given = valueAt(index, value0, value1, value2);
+                    if (value != given && !value.equals(given)) { return false; }
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -26,27 +26,194 @@
  */
 package org.mashti.gauge;
 
-import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+/**
+ * A named collection of {@link Metric metrics} that is safe to register to, look up from and report concurrently.
+ * Dynamically created metrics may be {@link #setCardinalityLimit(int) limited} and {@link #setExpiry(long, TimeUnit) expired}, whereas {@link #register(String, Metric) registered} metrics never are.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
 public class MetricRegistry {
 
+    /** The name of the gauge that reports the number of registered metrics, which is registered once a limit or an expiry is set. */
+    public static final String SIZE_METRIC_NAME = "registry.size";
+    /** The name of the counter that reports the number of lookups that were redirected to an overflow metric, which is registered once a limit or an expiry is set. */
+    public static final String OVERFLOWED_METRIC_NAME = "registry.overflowed";
+    /** The name of the counter that reports the number of expired metrics, which is registered once a limit or an expiry is set. */
+    public static final String EXPIRED_METRIC_NAME = "registry.expired";
+    /** The prefix of the names under which the overflow metrics are registered, followed by the lower-case simple name of their type. */
+    public static final String OVERFLOW_METRIC_NAME_PREFIX = "registry.overflow.";
+    private static final long NEVER = Long.MAX_VALUE;
     private static final Logger LOGGER = LoggerFactory.getLogger(MetricRegistry.class);
-    private final Map<String, Metric> registered_metrics;
+    private final ConcurrentHashMap<String, Entry> entries_by_name;
     private final String name;
+    private final List<MetricRegistryListener> listeners;
+    private final Map<Class<? extends Metric>, Metric> overflow_metrics;
+    private volatile RegistrySnapshot snapshot;
+    private volatile int cardinality_limit;
+    private volatile long expiry_nanos;
+    private volatile long clock_nanos;
+    private volatile int dynamic_count;
+    private volatile Counter overflowed;
+    private Counter expired;
 
     public MetricRegistry(String name) {
 
         this.name = name;
-        registered_metrics = new LinkedHashMap<>(); // respect insertion order
+        entries_by_name = new ConcurrentHashMap<>();
+        listeners = new CopyOnWriteArrayList<>();
+        overflow_metrics = new ConcurrentHashMap<>();
+        snapshot = RegistrySnapshot.EMPTY;
+        cardinality_limit = Integer.MAX_VALUE;
+        expiry_nanos = NEVER;
+        clock_nanos = System.nanoTime();
+    }
+
+    public synchronized Metric register(String name, Metric metric) {
+
+        if (name == null || metric == null) { throw new NullPointerException("name and metric must not be null"); }
+
+        return put(name, new Entry(metric, null));
+    }
+
+    /**
+     * Sets the maximum number of metrics that may be created by the get-or-create accessors, such as {@link #counter(String)}.
+     * Once the limit is reached, the accessors return a shared overflow metric of the requested type for the names that are not already registered, and count the lookup as overflowed.
+     * Lowering the limit below the number of existing metrics does not remove any of them.
+     *
+     * @param cardinality_limit the maximum number of metrics that may be created by the get-or-create accessors
+     * @throws IllegalArgumentException if the given limit is negative
+     */
+    public synchronized void setCardinalityLimit(int cardinality_limit) {
+
+        if (cardinality_limit < 0) { throw new IllegalArgumentException("cardinality limit must not be negative"); }
+
+        this.cardinality_limit = cardinality_limit;
+        registerRegistryMetrics();
+    }
+
+    public int getCardinalityLimit() {
+
+        return cardinality_limit;
+    }
+
+    /**
+     * Sets the duration after which the metrics that are created by the get-or-create accessors expire if they have not been updated.
+     * Looking a metric up does not count as an update; a caller that holds on to a metric that may be idle for longer than the expiry should look it up again before updating it.
+     * Expired metrics are removed on the next {@link #expireIdleMetrics() sweep}, which a {@link org.mashti.gauge.reporter.ScheduledReporter} performs after every report.
+     * Because updates are only timestamped with the time of the latest sweep, a metric expires after between the given duration and the given duration plus one sweep interval;
+     * to expire metrics that are idle for {@code N} reporting intervals, set the expiry to {@code N} times the interval.
+     *
+     * @param expiry the duration after which idle metrics expire
+     * @param unit the unit of the given duration
+     * @throws IllegalArgumentException if the given duration is not positive
+     */
+    public synchronized void setExpiry(long expiry, TimeUnit unit) {
+
+        if (expiry <= 0) { throw new IllegalArgumentException("expiry must be positive"); }
+
+        expiry_nanos = unit.toNanos(expiry);
+        registerRegistryMetrics();
     }
 
-    public Metric register(String name, Metric metric) {
+    /**
+     * Brings the registered metrics up to date before they are reported, which a {@link org.mashti.gauge.reporter.ScheduledReporter} performs before every report.
+     * This implementation does nothing, since the metrics of a registry are updated directly; registries that derive their metrics from elsewhere, such as {@link CompositeMetricRegistry}, override it.
+     */
+    public void collect() {
 
-        return registered_metrics.put(name, metric);
+    }
+
+    /**
+     * Removes the metrics that are created by the get-or-create accessors and have not been updated for longer than the {@link #setExpiry(long, TimeUnit) expiry}, and advances the clock by which updates are timestamped.
+     * The expired metrics are removed together, in a single new {@link #getSnapshot() snapshot}.
+     *
+     * @return the number of expired metrics
+     */
+    public synchronized int expireIdleMetrics() {
+
+        final long now = System.nanoTime();
+        clock_nanos = now;
+        final long expiry_nanos = this.expiry_nanos;
+        if (expiry_nanos == NEVER) { return 0; }
+
+        final RegistrySnapshot snapshot = this.snapshot;
+        final Set<String> expired_names = new HashSet<>();
+        for (int index = 0; index < snapshot.size(); index++) {
+            final String name = snapshot.getName(index);
+            final Entry entry = entries_by_name.get(name);
+            if (entry.isDynamic() && now - entry.activity.last_touched_nanos > expiry_nanos) {
+                entries_by_name.remove(name);
+                expired_names.add(name);
+            }
+        }
+
+        final int expired_count = expired_names.size();
+        if (expired_count > 0) {
+            dynamic_count -= expired_count;
+            this.snapshot = snapshot.without(expired_names);
+            for (int index = 0; index < snapshot.size(); index++) {
+                final String name = snapshot.getName(index);
+                if (expired_names.contains(name)) {
+                    for (MetricRegistryListener listener : listeners) {
+                        listener.onMetricRemoved(name, snapshot.getMetric(index));
+                    }
+                }
+            }
+            expired.add(expired_count);
+            LOGGER.debug("expired {} idle metrics from registry {}", expired_count, this.name);
+        }
+        return expired_count;
+    }
+
+    /**
+     * Removes the metric that is registered under the given name.
+     *
+     * @param name the name of the metric to remove
+     * @return the removed metric, or {@code null} if no metric is registered under the given name
+     */
+    public synchronized Metric remove(String name) {
+
+        final Entry removed = entries_by_name.remove(name);
+        if (removed == null) { return null; }
+
+        if (removed.isDynamic()) {
+            dynamic_count--;
+        }
+        snapshot = snapshot.without(name);
+        for (MetricRegistryListener listener : listeners) {
+            listener.onMetricRemoved(name, removed.metric);
+        }
+        return removed.metric;
+    }
+
+    /**
+     * Adds a listener to the changes of this registry.
+     * The listener is notified of the addition of every metric that is already registered before this method returns.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(MetricRegistryListener listener) {
+
+        listeners.add(listener);
+        final RegistrySnapshot snapshot = this.snapshot;
+        for (int index = 0; index < snapshot.size(); index++) {
+            listener.onMetricAdded(snapshot.getName(index), snapshot.getMetric(index));
+        }
+    }
+
+    public synchronized void removeListener(MetricRegistryListener listener) {
+
+        listeners.remove(listener);
     }
 
     public synchronized void registerAll(MetricSet metric_set) {
@@ -63,13 +230,301 @@ public class MetricRegistry {
         }
     }
 
+    /**
+     * Gets the metric that is registered under the given name.
+     *
+     * @param name the name of the metric
+     * @return the metric that is registered under the given name, or {@code null} if no such metric exists
+     */
+    public Metric get(String name) {
+
+        final Entry entry = entries_by_name.get(name);
+        return entry == null ? null : entry.metric;
+    }
+
+    /**
+     * Gets the {@link Counter} that is registered under the given name, and registers a new one if no metric is registered under the name.
+     *
+     * @param name the name of the counter
+     * @return the counter that is registered under the given name
+     * @throws IllegalArgumentException if a metric of another type is registered under the given name
+     */
+    public Counter counter(String name) {
+
+        return getOrRegister(name, Counter.class);
+    }
+
+    /**
+     * Gets the {@link Timer} that is registered under the given name, and registers a new one if no metric is registered under the name.
+     *
+     * @param name the name of the timer
+     * @return the timer that is registered under the given name
+     * @throws IllegalArgumentException if a metric of another type is registered under the given name
+     */
+    public Timer timer(String name) {
+
+        return getOrRegister(name, Timer.class);
+    }
+
+    /**
+     * Gets the {@link Rate} that is registered under the given name, and registers a new one if no metric is registered under the name.
+     *
+     * @param name the name of the rate
+     * @return the rate that is registered under the given name
+     * @throws IllegalArgumentException if a metric of another type is registered under the given name
+     */
+    public Rate rate(String name) {
+
+        return getOrRegister(name, Rate.class);
+    }
+
+    /**
+     * Gets the {@link Sampler} that is registered under the given name, and registers a new one if no metric is registered under the name.
+     *
+     * @param name the name of the sampler
+     * @return the sampler that is registered under the given name
+     * @throws IllegalArgumentException if a metric of another type is registered under the given name
+     */
+    public Sampler sampler(String name) {
+
+        return getOrRegister(name, Sampler.class);
+    }
+
+    /**
+     * Gets an immutable view of the registered metrics in the order of registration.
+     * The view is not affected by subsequent registrations, and is safe to iterate concurrently with them.
+     *
+     * @return an immutable view of the registered metrics
+     */
     public Map<String, Metric> getRegisteredMetrics() {
 
-        return registered_metrics;
+        return snapshot.asMap();
+    }
+
+    /**
+     * Gets an immutable snapshot of the registered metrics, which is only rebuilt when registrations change.
+     *
+     * @return an immutable snapshot of the registered metrics
+     */
+    public RegistrySnapshot getSnapshot() {
+
+        return snapshot;
     }
 
     public String getName() {
 
         return name;
     }
+
+    private <T extends Metric> T getOrRegister(String name, Class<T> type) {
+
+        final Entry entry = entries_by_name.get(name);
+        final Metric metric;
+        if (entry != null) {
+            metric = entry.metric;
+        }
+        else if (dynamic_count >= cardinality_limit) {
+            metric = overflow(type);
+        }
+        else {
+            metric = getOrCreate(name, type);
+        }
+
+        if (!type.isInstance(metric)) { throw new IllegalArgumentException("metric named " + name + " is not a " + type.getSimpleName() + ": " + metric); }
+        return type.cast(metric);
+    }
+
+    private synchronized Metric getOrCreate(String name, Class<? extends Metric> type) {
+
+        final Entry existing = entries_by_name.get(name);
+        if (existing != null) { return existing.metric; }
+        if (dynamic_count >= cardinality_limit) { return overflow(type); }
+
+        final Activity activity = new Activity(System.nanoTime());
+        final Entry entry = new Entry(newDynamicMetric(type, activity), activity);
+        put(name, entry);
+        return entry.metric;
+    }
+
+    private Metric overflow(Class<? extends Metric> type) {
+
+        overflowed.increment();
+        final Metric overflow = overflow_metrics.get(type);
+        return overflow != null ? overflow : getOrCreateOverflowMetric(type);
+    }
+
+    private synchronized Metric getOrCreateOverflowMetric(Class<? extends Metric> type) {
+
+        Metric overflow = overflow_metrics.get(type);
+        if (overflow == null) {
+            overflow = newMetric(type);
+            overflow_metrics.put(type, overflow);
+            register(OVERFLOW_METRIC_NAME_PREFIX + type.getSimpleName().toLowerCase(), overflow);
+        }
+        return overflow;
+    }
+
+    private Metric put(String name, Entry entry) {
+
+        final Entry replaced = entries_by_name.put(name, entry);
+        if (entry.isDynamic()) {
+            dynamic_count++;
+        }
+        if (replaced != null && replaced.isDynamic()) {
+            dynamic_count--;
+        }
+        snapshot = replaced == null ? snapshot.withAdded(name, entry.metric) : snapshot.with(name, entry.metric);
+        for (MetricRegistryListener listener : listeners) {
+            if (replaced != null) {
+                listener.onMetricRemoved(name, replaced.metric);
+            }
+            listener.onMetricAdded(name, entry.metric);
+        }
+        return replaced == null ? null : replaced.metric;
+    }
+
+    private void registerRegistryMetrics() {
+
+        if (overflowed == null) {
+            overflowed = new Counter();
+            expired = new Counter();
+            register(SIZE_METRIC_NAME, new SizeGauge());
+            register(OVERFLOWED_METRIC_NAME, overflowed);
+            register(EXPIRED_METRIC_NAME, expired);
+        }
+    }
+
+    private static Metric newMetric(Class<? extends Metric> type) {
+
+        if (type == Counter.class) { return new Counter(); }
+        if (type == Timer.class) { return new Timer(); }
+        if (type == Rate.class) { return new Rate(); }
+        if (type == Sampler.class) { return new Sampler(); }
+        throw new IllegalArgumentException("unsupported metric type " + type);
+    }
+
+    /** Creates a metric of the given type that stamps the given activity whenever it is updated. */
+    private Metric newDynamicMetric(Class<? extends Metric> type, Activity activity) {
+
+        if (type == Counter.class) { return new ActiveCounter(activity); }
+        if (type == Timer.class) { return new ActiveTimer(activity); }
+        if (type == Rate.class) { return new ActiveRate(activity); }
+        if (type == Sampler.class) { return new ActiveSampler(activity); }
+        throw new IllegalArgumentException("unsupported metric type " + type);
+    }
+
+    private static final class Entry {
+
+        private final Metric metric;
+        /** The activity of a metric that is created by the get-or-create accessors, or {@code null} if the metric is registered explicitly. */
+        private final Activity activity;
+
+        private Entry(Metric metric, Activity activity) {
+
+            this.metric = metric;
+            this.activity = activity;
+        }
+
+        private boolean isDynamic() {
+
+            return activity != null;
+        }
+    }
+
+    /** The time of the latest update of a metric, as of the latest sweep. */
+    private final class Activity {
+
+        private volatile long last_touched_nanos;
+
+        private Activity(long last_touched_nanos) {
+
+            this.last_touched_nanos = last_touched_nanos;
+        }
+
+        private void touch() {
+
+            // Only write when the clock has advanced since the last touch, so that hot updates do not keep invalidating the cache line.
+            final long clock_nanos = MetricRegistry.this.clock_nanos;
+            if (clock_nanos - last_touched_nanos > 0) {
+                last_touched_nanos = clock_nanos;
+            }
+        }
+    }
+
+    private static final class ActiveCounter extends Counter {
+
+        private final Activity activity;
+
+        private ActiveCounter(Activity activity) {
+
+            this.activity = activity;
+        }
+
+        @Override
+        public void add(long n) {
+
+            super.add(n);
+            activity.touch();
+        }
+    }
+
+    private static final class ActiveTimer extends Timer {
+
+        private final Activity activity;
+
+        private ActiveTimer(Activity activity) {
+
+            this.activity = activity;
+        }
+
+        @Override
+        public void update(long length, TimeUnit unit) {
+
+            super.update(length, unit);
+            activity.touch();
+        }
+    }
+
+    private static final class ActiveRate extends Rate {
+
+        private final Activity activity;
+
+        private ActiveRate(Activity activity) {
+
+            this.activity = activity;
+        }
+
+        @Override
+        public void mark(long n) {
+
+            super.mark(n);
+            activity.touch();
+        }
+    }
+
+    private static final class ActiveSampler extends Sampler {
+
+        private final Activity activity;
+
+        private ActiveSampler(Activity activity) {
+
+            this.activity = activity;
+        }
+
+        @Override
+        public void update(double sample) {
+
+            super.update(sample);
+            activity.touch();
+        }
+    }
+
+    private final class SizeGauge extends AbstractGauge<Integer> {
+
+        @Override
+        public Integer get() {
+
+            return entries_by_name.size();
+        }
+    }
 }
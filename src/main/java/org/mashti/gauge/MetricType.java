@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+/**
+ * The types of {@link Metric metrics} that reporters distinguish between.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public enum MetricType {
+
+    COUNTER,
+    RATE,
+    SAMPLER,
+    TIMER,
+    ROLLING_COUNTER,
+    ROLLING_RATE,
+    GAUGE,
+    FAMILY,
+    OTHER;
+
+    /**
+     * Classifies the given metric.
+     *
+     * @param metric the metric to classify
+     * @return the type of the given metric
+     */
+    public static MetricType of(Metric metric) {
+
+        final Classifier classifier = new Classifier();
+        metric.accept(classifier);
+        return classifier.type;
+    }
+
+    private static final class Classifier implements MetricVisitor {
+
+        private MetricType type = OTHER;
+
+        @Override
+        public void visitCounter(Counter counter) {
+
+            type = COUNTER;
+        }
+
+        @Override
+        public void visitRate(Rate rate) {
+
+            type = RATE;
+        }
+
+        @Override
+        public void visitSampler(Sampler sampler) {
+
+            type = SAMPLER;
+        }
+
+        @Override
+        public void visitTimer(Timer timer) {
+
+            type = TIMER;
+        }
+
+        @Override
+        public void visitRollingCounter(RollingCounter counter) {
+
+            type = ROLLING_COUNTER;
+        }
+
+        @Override
+        public void visitRollingRate(RollingRate rate) {
+
+            type = ROLLING_RATE;
+        }
+
+        @Override
+        public void visitGauge(Gauge<?> gauge) {
+
+            type = GAUGE;
+        }
+
+        @Override
+        public void visitFamily(MetricFamily<?> family) {
+
+            type = FAMILY;
+        }
+    }
+}
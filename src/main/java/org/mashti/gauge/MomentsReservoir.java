@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.mashti.gauge.util.DoubleAdder;
+import org.mashti.gauge.util.DoubleMaxUpdater;
+import org.mashti.gauge.util.LongAdder;
+import org.mashti.gauge.util.WriterReaderPhaser;
+
+/**
+ * A {@link Reservoir} that keeps no samples, and only tracks the count, mean, standard deviation, minimum and maximum of samples per interval as a {@link MomentsSnapshot}.
+ * It holds about half a kilobyte, which grows to about a kilobyte and a half per processor under contention.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class MomentsReservoir implements Reservoir {
+
+    private final WriterReaderPhaser phaser;
+    private volatile Moments active;
+    private Moments inactive;
+
+    public MomentsReservoir() {
+
+        phaser = new WriterReaderPhaser();
+        active = new Moments();
+        inactive = new Moments();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final long critical_value = phaser.writerCriticalSectionEnter();
+        try {
+            active.add(sample);
+        }
+        finally {
+            phaser.writerCriticalSectionExit(critical_value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned snapshot is taken while samples may still be recorded, and so may count a sample in some moments but not in others.
+     */
+    @Override
+    public MomentsSnapshot get() {
+
+        phaser.readerLock();
+        try {
+            return active.getSnapshot();
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    @Override
+    public MomentsSnapshot getAndReset() {
+
+        phaser.readerLock();
+        try {
+            final Moments sampled = active;
+            active = inactive;
+            inactive = sampled;
+            phaser.flipPhase();
+
+            final MomentsSnapshot snapshot = sampled.getSnapshot();
+            sampled.reset(snapshot.getN() == 0 ? sampled.shift : snapshot.getMean());
+            return snapshot;
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    private static final class Moments {
+
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAdder sum_of_squares = new DoubleAdder();
+        private final DoubleMaxUpdater max = new DoubleMaxUpdater();
+        private final DoubleMaxUpdater negated_min = new DoubleMaxUpdater();
+        private volatile double shift = Double.NaN;
+
+        private void add(double sample) {
+
+            double shift = this.shift;
+            if (Double.isNaN(shift)) {
+                shift = initialiseShift(sample);
+            }
+            final double deviation = sample - shift;
+            count.increment();
+            sum.add(deviation);
+            sum_of_squares.add(deviation * deviation);
+            max.update(sample);
+            negated_min.update(-sample);
+        }
+
+        private synchronized double initialiseShift(double sample) {
+
+            if (Double.isNaN(shift)) {
+                shift = sample;
+            }
+            return shift;
+        }
+
+        private MomentsSnapshot getSnapshot() {
+
+            final long n = count.sum();
+            if (n == 0) { return new MomentsSnapshot(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN); }
+
+            final double shift = this.shift;
+            final double deviations = sum.sum();
+            final double mean_deviation = deviations / n;
+            final double variance = n == 1 ? 0 : Math.max(0, (sum_of_squares.sum() - deviations * mean_deviation) / (n - 1));
+            return new MomentsSnapshot(n, -negated_min.max(), shift + mean_deviation, max.max(), Math.sqrt(variance));
+        }
+
+        /** Resets the moments; must only be called while no samples are being added. */
+        private void reset(double shift) {
+
+            count.reset();
+            sum.reset();
+            sum_of_squares.reset();
+            max.reset();
+            negated_min.reset();
+            this.shift = shift;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+/**
+ * An immutable {@link Snapshot} that only holds the count, moments, minimum and maximum of samples.
+ * Percentiles are not supported, and are {@link Double#NaN}.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class MomentsSnapshot implements Snapshot {
+
+    private final long n;
+    private final double min;
+    private final double mean;
+    private final double max;
+    private final double standard_deviation;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param n the number of samples
+     * @param min the minimum sample
+     * @param mean the mean of samples
+     * @param max the maximum sample
+     * @param standard_deviation the standard deviation of samples
+     */
+    public MomentsSnapshot(long n, double min, double mean, double max, double standard_deviation) {
+
+        this.n = n;
+        this.min = min;
+        this.mean = mean;
+        this.max = max;
+        this.standard_deviation = standard_deviation;
+    }
+
+    @Override
+    public long getN() {
+
+        return n;
+    }
+
+    @Override
+    public double getMin() {
+
+        return min;
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return max;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        return Double.NaN;
+    }
+}
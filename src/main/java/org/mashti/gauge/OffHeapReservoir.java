@@ -0,0 +1,279 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.mashti.gauge.util.LongAdder;
+import org.mashti.gauge.util.WriterReaderPhaser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Reservoir} that stores up to {@code capacity} samples per interval off-heap, dropping the rest, and reuses up to twice the capacity of direct memory across intervals.
+ * Snapshots hold the moments and a fixed set of percentiles, between which other percentiles are interpolated.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class OffHeapReservoir implements Reservoir {
+
+    public static final int DEFAULT_SLAB_SIZE = 1 << 16;
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 10;
+    /** The percentiles that are selected by default, which are the percentiles that are reported by the {@link org.mashti.gauge.reporter.CsvReporter}. */
+    public static final double[] DEFAULT_PERCENTILES = {0.1, 1, 2, 5, 25, 50, 75, 95, 98, 99, 99.9};
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapReservoir.class);
+    private final long capacity;
+    private final int slab_size;
+    private final int chunk_size;
+    private final int chunks_per_slab;
+    private final int max_slab_count;
+    private final int max_chunk_count;
+    private final double[] percentiles;
+    private final WriterReaderPhaser phaser;
+    private final ThreadLocal<Chunk> local_chunk;
+    private volatile Interval active;
+    private Interval inactive;
+
+    public OffHeapReservoir(long capacity) {
+
+        this(capacity, DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapReservoir(long capacity, int slab_size) {
+
+        this(capacity, slab_size, Math.min(DEFAULT_CHUNK_SIZE, slab_size));
+    }
+
+    public OffHeapReservoir(long capacity, int slab_size, int chunk_size) {
+
+        this(capacity, slab_size, chunk_size, DEFAULT_PERCENTILES);
+    }
+
+    /**
+     * Constructs a new reservoir.
+     *
+     * @param capacity the maximum number of samples to store per interval
+     * @param slab_size the number of samples per slab
+     * @param chunk_size the number of samples that a thread claims at a time
+     * @param percentiles the percentiles to select when a snapshot is taken, each within range {@code 0 < percentile <= 100}
+     */
+    public OffHeapReservoir(long capacity, int slab_size, int chunk_size, double... percentiles) {
+
+        if (capacity < 1) { throw new IllegalArgumentException("capacity must be positive"); }
+        if (slab_size < 1) { throw new IllegalArgumentException("slab size must be at least 1"); }
+        if (chunk_size < 1 || chunk_size > slab_size) { throw new IllegalArgumentException("chunk size must be between 1 and the slab size"); }
+
+        final long max_slab_count = (capacity + slab_size - 1) / slab_size;
+        final int chunks_per_slab = (slab_size + chunk_size - 1) / chunk_size;
+        final long last_slab_size = capacity - (max_slab_count - 1) * slab_size;
+        final long max_chunk_count = (max_slab_count - 1) * chunks_per_slab + (last_slab_size + chunk_size - 1) / chunk_size;
+        if (max_chunk_count > Integer.MAX_VALUE) { throw new IllegalArgumentException("capacity must be at most " + (long) Integer.MAX_VALUE * chunk_size + " for chunks of " + chunk_size + " samples"); }
+        for (double percentile : percentiles) {
+            if (!(percentile > 0 && percentile <= 100)) { throw new IllegalArgumentException("percentiles must be within range 0 < percentile <= 100"); }
+        }
+
+        this.capacity = capacity;
+        this.slab_size = slab_size;
+        this.chunk_size = chunk_size;
+        this.chunks_per_slab = chunks_per_slab;
+        this.max_slab_count = (int) max_slab_count;
+        this.max_chunk_count = (int) max_chunk_count;
+        this.percentiles = percentiles.clone();
+        phaser = new WriterReaderPhaser();
+        local_chunk = new ThreadLocal<>();
+        active = new Interval();
+        inactive = new Interval();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final long critical_value = phaser.writerCriticalSectionEnter();
+        try {
+            final Interval interval = active;
+            Chunk chunk = local_chunk.get();
+            if (chunk == null || chunk.interval != interval || chunk.isFull()) {
+                chunk = interval.claimChunk();
+                if (chunk == null) {
+                    interval.dropped.increment();
+                    return;
+                }
+                local_chunk.set(chunk);
+            }
+            chunk.add(sample);
+        }
+        finally {
+            phaser.writerCriticalSectionExit(critical_value);
+        }
+    }
+
+    @Override
+    public Snapshot get() {
+
+        phaser.readerLock();
+        try {
+            return active.getSnapshot();
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        phaser.readerLock();
+        try {
+            final Interval sampled = active;
+            active = inactive;
+            phaser.flipPhase();
+
+            final long dropped = sampled.dropped.sum();
+            if (dropped > 0) {
+                LOGGER.warn("dropped {} samples that exceeded the capacity of {} samples", dropped, capacity);
+            }
+            final Snapshot snapshot = sampled.getSnapshot();
+            sampled.reset();
+            inactive = sampled;
+            return snapshot;
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    private final class Interval {
+
+        private final AtomicReferenceArray<DoubleBuffer> slabs = new AtomicReferenceArray<>(max_slab_count);
+        private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(max_chunk_count);
+        private final AtomicInteger chunk_count = new AtomicInteger();
+        private final LongAdder dropped = new LongAdder();
+
+        private Chunk claimChunk() {
+
+            if (chunk_count.get() >= max_chunk_count) { return null; }
+
+            final int index = chunk_count.getAndIncrement();
+            if (index >= max_chunk_count) { return null; }
+
+            final int slab_index = index / chunks_per_slab;
+            final int offset = index % chunks_per_slab * chunk_size;
+            final int size = (int) Math.min(Math.min(chunk_size, slab_size - offset), capacity - (long) slab_index * slab_size - offset);
+            final Chunk chunk = new Chunk(this, getOrAllocateSlab(slab_index), offset, size);
+            chunks.set(index, chunk);
+            return chunk;
+        }
+
+        private DoubleBuffer getOrAllocateSlab(int index) {
+
+            DoubleBuffer slab = slabs.get(index);
+            if (slab == null) {
+                synchronized (slabs) {
+                    slab = slabs.get(index);
+                    if (slab == null) {
+                        final int size = (int) Math.min(slab_size, capacity - (long) index * slab_size);
+                        slab = ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+                        slabs.set(index, slab);
+                    }
+                }
+            }
+            return slab;
+        }
+
+        private Snapshot getSnapshot() {
+
+            final int count = Math.min(chunk_count.get(), max_chunk_count);
+            final DoubleBuffer[] segments = new DoubleBuffer[count];
+            int segment_count = 0;
+            for (int index = 0; index < count; index++) {
+                final Chunk chunk = chunks.get(index);
+                final DoubleBuffer segment = chunk == null ? null : chunk.getSegment();
+                if (segment != null && segment.limit() > 0) {
+                    segments[segment_count++] = segment;
+                }
+            }
+            return new OffHeapSnapshot(segment_count == count ? segments : Arrays.copyOf(segments, segment_count)).select(percentiles);
+        }
+
+        /** Empties this interval while keeping its slabs, and detaches its chunks so that threads holding on to them claim new chunks once this interval is active again. */
+        private void reset() {
+
+            final int count = Math.min(chunk_count.get(), max_chunk_count);
+            for (int index = 0; index < count; index++) {
+                final Chunk chunk = chunks.get(index);
+                if (chunk != null) {
+                    chunk.interval = null;
+                    chunks.set(index, null);
+                }
+            }
+            chunk_count.set(0);
+            dropped.reset();
+        }
+    }
+
+    private static final class Chunk {
+
+        private static final AtomicIntegerFieldUpdater<Chunk> LENGTH_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "length");
+        private Interval interval;
+        private final DoubleBuffer samples;
+        private volatile int length;
+
+        private Chunk(Interval interval, DoubleBuffer slab, int offset, int size) {
+
+            this.interval = interval;
+            final DoubleBuffer view = slab.duplicate();
+            view.limit(offset + size);
+            view.position(offset);
+            samples = view.slice();
+        }
+
+        private boolean isFull() {
+
+            return length == samples.capacity();
+        }
+
+        /** Appends the given sample; must only be called by the thread that claimed this chunk. */
+        private void add(double sample) {
+
+            final int index = length;
+            samples.put(index, sample);
+            LENGTH_UPDATER.lazySet(this, index + 1);
+        }
+
+        private DoubleBuffer getSegment() {
+
+            final DoubleBuffer segment = samples.duplicate();
+            segment.limit(length);
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+import org.mashti.gauge.util.SharedForkJoinPool;
+
+/**
+ * An immutable {@link Snapshot} of samples in off-heap {@link DoubleBuffer} segments, whose percentiles are selected by nearest rank without copying or sorting the samples.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class OffHeapSnapshot implements Snapshot {
+
+    private static final int DIGIT_BITS = 11;
+    private static final int TASKS_PER_THREAD = 4;
+    private final DoubleBuffer[] segments;
+    private final int segments_per_task;
+    private final long n;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double standard_deviation;
+    private volatile long[][] first_digit_counts;
+
+    /**
+     * Constructs a new snapshot of the samples between zero and the limit of each of the given segments.
+     * The content of the segments within their limits must not change after construction.
+     *
+     * @param segments the segments of samples
+     */
+    public OffHeapSnapshot(DoubleBuffer[] segments) {
+
+        this.segments = new DoubleBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            this.segments[i] = segments[i].duplicate();
+        }
+        segments_per_task = Math.max(1, segments.length / (SharedForkJoinPool.get().getParallelism() * TASKS_PER_THREAD));
+
+        final Moments moments = SharedForkJoinPool.get().invoke(new MomentsTask(0, segments.length));
+        n = moments.count;
+        if (n == 0) {
+            min = Double.NaN;
+            max = Double.NaN;
+            mean = Double.NaN;
+            standard_deviation = Double.NaN;
+        }
+        else {
+            min = moments.min;
+            max = moments.max;
+            mean = moments.mean;
+            standard_deviation = n == 1 ? 0 : Math.sqrt(moments.squared_deviations / (n - 1));
+        }
+    }
+
+    @Override
+    public long getN() {
+
+        return n;
+    }
+
+    @Override
+    public double getMin() {
+
+        return min;
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return max;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        return getPercentiles(percentile)[0];
+    }
+
+    /**
+     * Gets estimates of the given percentiles of the samples, whose ranks are all selected in the same radix passes over the segments.
+     *
+     * @param percentiles the percentiles, each within range {@code 0 < percentile <= 100}
+     * @return estimates of the given percentiles in the given order, or {@link Double#NaN} for each percentile if this snapshot is empty
+     */
+    public double[] getPercentiles(double... percentiles) {
+
+        final double[] values = new double[percentiles.length];
+        if (n == 0 || percentiles.length == 0) {
+            Arrays.fill(values, Double.NaN);
+            return values;
+        }
+
+        final long[] ranks = new long[percentiles.length];
+        final long[] prefixes = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            ranks[i] = Math.min(n, Math.max(1, (long) Math.ceil(percentiles[i] / 100 * n)));
+        }
+
+        int prefix_bits = 0;
+        while (prefix_bits < Long.SIZE) {
+            final int digit_bits = Math.min(DIGIT_BITS, Long.SIZE - prefix_bits);
+            final long[] distinct_prefixes = distinct(prefixes);
+            final long[][] counts = prefix_bits == 0 ? getFirstDigitCounts() : SharedForkJoinPool.get().invoke(new DigitCountTask(0, segments.length, distinct_prefixes, prefix_bits, digit_bits));
+
+            for (int i = 0; i < ranks.length; i++) {
+                final long[] prefix_counts = counts[Arrays.binarySearch(distinct_prefixes, prefixes[i])];
+                int digit = 0;
+                while (ranks[i] > prefix_counts[digit]) {
+                    ranks[i] -= prefix_counts[digit++];
+                }
+                prefixes[i] = prefixes[i] << digit_bits | digit;
+            }
+            prefix_bits += digit_bits;
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = toValue(prefixes[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Selects the given percentiles of the samples into a snapshot that is held on the heap, and so remains valid once the segments of this snapshot are reused.
+     * The selected snapshot interpolates the percentiles that are not selected.
+     *
+     * @param percentiles the percentiles to select, each within range {@code 0 < percentile <= 100}
+     * @return a snapshot of the moments and the given percentiles of the samples
+     */
+    public Snapshot select(double... percentiles) {
+
+        return new SelectedSnapshot(n, min, mean, max, standard_deviation, percentiles, getPercentiles(percentiles));
+    }
+
+    /** Gets the counts of the first digit, which are the same for every rank and so are counted once per snapshot. */
+    private long[][] getFirstDigitCounts() {
+
+        long[][] counts = first_digit_counts;
+        if (counts == null) {
+            counts = SharedForkJoinPool.get().invoke(new DigitCountTask(0, segments.length, new long[]{0}, 0, DIGIT_BITS));
+            first_digit_counts = counts;
+        }
+        return counts;
+    }
+
+    private static long[] distinct(long[] values) {
+
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /** Maps a sample to a key whose unsigned order is the same as the numerical order of samples. */
+    private static long toKey(double value) {
+
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ (bits >> 63 | Long.MIN_VALUE);
+    }
+
+    private static double toValue(long key) {
+
+        return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE : ~key);
+    }
+
+    private static final class Moments {
+
+        private long count;
+        private double mean;
+        private double squared_deviations;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private void add(double value) {
+
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            squared_deviations += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        private void add(Moments other) {
+
+            if (other.count == 0) { return; }
+
+            final long total = count + other.count;
+            final double delta = other.mean - mean;
+            squared_deviations += other.squared_deviations + delta * delta * count * other.count / total;
+            mean += delta * other.count / total;
+            count = total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    private final class MomentsTask extends RecursiveTask<Moments> {
+
+        private static final long serialVersionUID = 5871096211932361472L;
+        private final int from;
+        private final int to;
+
+        private MomentsTask(int from, int to) {
+
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Moments compute() {
+
+            if (to - from > segments_per_task) {
+                final int middle = (from + to) >>> 1;
+                final MomentsTask right = new MomentsTask(middle, to);
+                right.fork();
+                final Moments moments = new MomentsTask(from, middle).compute();
+                moments.add(right.join());
+                return moments;
+            }
+
+            final Moments moments = new Moments();
+            for (int i = from; i < to; i++) {
+                final DoubleBuffer segment = segments[i];
+                for (int index = 0; index < segment.limit(); index++) {
+                    moments.add(segment.get(index));
+                }
+            }
+            return moments;
+        }
+    }
+
+    private final class DigitCountTask extends RecursiveTask<long[][]> {
+
+        private static final long serialVersionUID = -3216404532823405384L;
+        private final int from;
+        private final int to;
+        private final long[] prefixes;
+        private final int prefix_bits;
+        private final int digit_bits;
+
+        private DigitCountTask(int from, int to, long[] prefixes, int prefix_bits, int digit_bits) {
+
+            this.from = from;
+            this.to = to;
+            this.prefixes = prefixes;
+            this.prefix_bits = prefix_bits;
+            this.digit_bits = digit_bits;
+        }
+
+        @Override
+        protected long[][] compute() {
+
+            if (to - from > segments_per_task) {
+                final int middle = (from + to) >>> 1;
+                final DigitCountTask right = new DigitCountTask(middle, to, prefixes, prefix_bits, digit_bits);
+                right.fork();
+                final long[][] counts = new DigitCountTask(from, middle, prefixes, prefix_bits, digit_bits).compute();
+                final long[][] right_counts = right.join();
+                for (int prefix_index = 0; prefix_index < counts.length; prefix_index++) {
+                    for (int digit = 0; digit < counts[prefix_index].length; digit++) {
+                        counts[prefix_index][digit] += right_counts[prefix_index][digit];
+                    }
+                }
+                return counts;
+            }
+
+            final long[][] counts = new long[prefixes.length][1 << digit_bits];
+            final int digit_shift = Long.SIZE - prefix_bits - digit_bits;
+            final long digit_mask = (1L << digit_bits) - 1;
+            for (int i = from; i < to; i++) {
+                final DoubleBuffer segment = segments[i];
+                for (int index = 0; index < segment.limit(); index++) {
+                    final long key = toKey(segment.get(index));
+                    final int prefix_index = prefix_bits == 0 ? 0 : Arrays.binarySearch(prefixes, key >>> Long.SIZE - prefix_bits);
+                    if (prefix_index >= 0) {
+                        counts[prefix_index][(int) (key >>> digit_shift & digit_mask)]++;
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -27,25 +27,53 @@
 package org.mashti.gauge;
 
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+/**
+ * Measures the rate of events per interval, and as {@link ExponentiallyWeightedMovingAverage moving averages} over one, five and fifteen minutes.
+ * Every mark is accounted for in exactly one {@link Interval}.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
 public class Rate implements Metric {
 
-    private final Counter counter;
-    private final AtomicLong start_time_nanos;
+    private static final int ONE_MINUTE = 0;
+    private static final int FIVE_MINUTES = 1;
+    private static final int FIFTEEN_MINUTES = 2;
+    private static final int STANDARD_MOVING_AVERAGE_COUNT = 3;
+    private final Counter total;
+    private final AtomicReference<IntervalStart> interval_start;
     private final TimeUnit unit;
+    private final ExponentiallyWeightedMovingAverage[] moving_averages;
+    private volatile long last_tick_nanos;
+    private long last_tick_count;
 
     public Rate() {
 
         this(TimeUnit.SECONDS);
     }
 
-    public Rate(TimeUnit unit) {
+    /**
+     * Constructs a new rate.
+     *
+     * @param unit the unit of time of rates
+     * @param alphas the smoothing factors per {@link ExponentiallyWeightedMovingAverage#TICK_INTERVAL_NANOS tick} of additional moving averages
+     * @see ExponentiallyWeightedMovingAverage#alphaOf(long, TimeUnit)
+     */
+    public Rate(TimeUnit unit, double... alphas) {
 
         this.unit = unit;
-        counter = new Counter();
-        start_time_nanos = new AtomicLong(System.nanoTime());
+        total = new Counter();
+        interval_start = new AtomicReference<>(new IntervalStart(0, System.nanoTime()));
+        last_tick_nanos = interval_start.get().nanos;
+
+        moving_averages = new ExponentiallyWeightedMovingAverage[STANDARD_MOVING_AVERAGE_COUNT + alphas.length];
+        moving_averages[ONE_MINUTE] = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.ONE_MINUTE_ALPHA);
+        moving_averages[FIVE_MINUTES] = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.FIVE_MINUTES_ALPHA);
+        moving_averages[FIFTEEN_MINUTES] = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.FIFTEEN_MINUTES_ALPHA);
+        for (int i = 0; i < alphas.length; i++) {
+            moving_averages[STANDARD_MOVING_AVERAGE_COUNT + i] = new ExponentiallyWeightedMovingAverage(alphas[i]);
+        }
     }
 
     public void mark() {
@@ -55,22 +83,83 @@ public class Rate implements Metric {
 
     public void mark(long n) {
 
-        counter.add(n);
+        total.add(n);
     }
 
     public double getRate() {
 
-        return getRate(false);
+        return getInterval().getRate(unit);
     }
 
     public double getRateAndReset() {
 
-        return getRate(true);
+        return getIntervalAndReset().getRate(unit);
+    }
+
+    /**
+     * Gets the current interval without resetting it.
+     *
+     * @return the current interval
+     */
+    public Interval getInterval() {
+
+        final IntervalStart start = interval_start.get();
+        return new Interval(total.get() - start.count, System.nanoTime() - start.nanos);
     }
 
+    /**
+     * Gets the current interval and atomically starts a new one.
+     *
+     * @return the interval prior to reset
+     */
+    public Interval getIntervalAndReset() {
+
+        IntervalStart start;
+        IntervalStart next;
+        do {
+            start = interval_start.get();
+            next = new IntervalStart(total.get(), System.nanoTime());
+        }
+        while (!interval_start.compareAndSet(start, next));
+
+        return new Interval(next.count - start.count, next.nanos - start.nanos);
+    }
+
+    public double getOneMinuteRate() {
+
+        return getMovingAverageRate(ONE_MINUTE);
+    }
+
+    public double getFiveMinuteRate() {
+
+        return getMovingAverageRate(FIVE_MINUTES);
+    }
+
+    public double getFifteenMinuteRate() {
+
+        return getMovingAverageRate(FIFTEEN_MINUTES);
+    }
+
+    /**
+     * Gets the rate of a moving average with one of the smoothing factors that are given on construction.
+     *
+     * @param index the index of the smoothing factor, in the order given on construction
+     * @return the moving average rate per {@link #getUnit() unit} of time
+     */
+    public double getCustomMovingAverageRate(int index) {
+
+        if (index < 0 || index >= moving_averages.length - STANDARD_MOVING_AVERAGE_COUNT) { throw new IllegalArgumentException("no custom moving average at index " + index); }
+        return getMovingAverageRate(STANDARD_MOVING_AVERAGE_COUNT + index);
+    }
+
+    /**
+     * Gets the number of marks in the current interval.
+     *
+     * @return the number of marks in the current interval
+     */
     public long getCount() {
 
-        return counter.get();
+        return total.get() - interval_start.get().count;
     }
 
     public TimeUnit getUnit() {
@@ -78,14 +167,86 @@ public class Rate implements Metric {
         return unit;
     }
 
-    private double getRate(boolean reset) {
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitRate(this);
+    }
+
+    private double getMovingAverageRate(int index) {
+
+        tickIfNecessary();
+        return moving_averages[index].getRate(unit);
+    }
+
+    private void tickIfNecessary() {
+
+        if (System.nanoTime() - last_tick_nanos >= ExponentiallyWeightedMovingAverage.TICK_INTERVAL_NANOS) {
+            tick();
+        }
+    }
+
+    private synchronized void tick() {
+
+        final long elapsed = System.nanoTime() - last_tick_nanos;
+        final long tick_count = elapsed / ExponentiallyWeightedMovingAverage.TICK_INTERVAL_NANOS;
+        if (tick_count < 1) { return; }
+
+        final long count = total.get();
+        for (ExponentiallyWeightedMovingAverage moving_average : moving_averages) {
+            moving_average.tick(count - last_tick_count, tick_count);
+        }
+        last_tick_count = count;
+        last_tick_nanos += tick_count * ExponentiallyWeightedMovingAverage.TICK_INTERVAL_NANOS;
+    }
+
+    /** An immutable interval of a rate, with a count and an elapsed time that are consistent with each other. */
+    public static final class Interval {
+
+        private final long count;
+        private final long elapsed_nanos;
+
+        private Interval(long count, long elapsed_nanos) {
+
+            this.count = count;
+            this.elapsed_nanos = elapsed_nanos;
+        }
+
+        public long getCount() {
+
+            return count;
+        }
+
+        public long getElapsedNanos() {
+
+            return elapsed_nanos;
+        }
+
+        /**
+         * Gets the average rate of marks in this interval.
+         * An elapsed time of less than one unit is treated as one unit.
+         *
+         * @param unit the unit of time
+         * @return the average number of marks per the given unit of time
+         */
+        public double getRate(TimeUnit unit) {
+
+            if (count == 0) { return 0; }
+
+            final long time = unit.convert(elapsed_nanos, TimeUnit.NANOSECONDS);
+            return (double) count / (time < 1 ? 1 : time);
+        }
+    }
+
+    private static final class IntervalStart {
+
+        private final long count;
+        private final long nanos;
 
-        final double count = reset ? counter.getAndReset() : getCount();
-        if (count == 0) { return 0; }
+        private IntervalStart(long count, long nanos) {
 
-        final long now = System.nanoTime();
-        final long elapsed = now - (reset ? start_time_nanos.getAndSet(now) : start_time_nanos.get());
-        final long time = unit.convert(elapsed, TimeUnit.NANOSECONDS);
-        return count / (time < 1 ? 1 : time);
+            this.count = count;
+            this.nanos = nanos;
+        }
     }
 }
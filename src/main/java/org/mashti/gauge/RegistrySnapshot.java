@@ -0,0 +1,204 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the metrics of a {@link MetricRegistry} and their {@link MetricType types}, in the order of registration.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public final class RegistrySnapshot {
+
+    static final RegistrySnapshot EMPTY = new RegistrySnapshot(new Storage(0), 0);
+    private static final int MINIMUM_CAPACITY = 16;
+    private final Storage storage;
+    private final int size;
+    private Map<String, Metric> map;
+
+    private RegistrySnapshot(Storage storage, int size) {
+
+        this.storage = storage;
+        this.size = size;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public String getName(int index) {
+
+        checkIndex(index);
+        return storage.names[index];
+    }
+
+    public Metric getMetric(int index) {
+
+        checkIndex(index);
+        return storage.metrics[index];
+    }
+
+    public MetricType getType(int index) {
+
+        checkIndex(index);
+        return storage.types[index];
+    }
+
+    /**
+     * Gets an immutable map of the metrics in this snapshot by their names, in the order of registration.
+     *
+     * @return an immutable map of the metrics in this snapshot
+     */
+    public Map<String, Metric> asMap() {
+
+        Map<String, Metric> map = this.map;
+        if (map == null) {
+            final Map<String, Metric> metrics_by_name = new LinkedHashMap<>();
+            for (int index = 0; index < size; index++) {
+                metrics_by_name.put(storage.names[index], storage.metrics[index]);
+            }
+            map = Collections.unmodifiableMap(metrics_by_name);
+            this.map = map;
+        }
+        return map;
+    }
+
+    /**
+     * Constructs a new snapshot in which the given metric is appended under the given name, which must not be registered in this snapshot.
+     * The arrays of this snapshot are shared with the new snapshot, unless they are full or a slot beyond this snapshot is already taken by another snapshot.
+     *
+     * @param name the name of the metric
+     * @param metric the metric
+     * @return a new snapshot with the given metric registered
+     */
+    RegistrySnapshot withAdded(String name, Metric metric) {
+
+        final Storage storage = this.storage.length == size && size < this.storage.names.length ? this.storage : this.storage.copy(size, Math.max(MINIMUM_CAPACITY, size * 2));
+        storage.names[size] = name;
+        storage.metrics[size] = metric;
+        storage.types[size] = MetricType.of(metric);
+        storage.length = size + 1;
+        return new RegistrySnapshot(storage, size + 1);
+    }
+
+    /**
+     * Constructs a new snapshot in which the given metric is registered under the given name, replacing any metric that is registered under the same name in its position.
+     *
+     * @param name the name of the metric
+     * @param metric the metric
+     * @return a new snapshot with the given metric registered
+     */
+    RegistrySnapshot with(String name, Metric metric) {
+
+        final int index = indexOf(name);
+        if (index < 0) { return withAdded(name, metric); }
+
+        final Storage storage = this.storage.copy(size, size);
+        storage.metrics[index] = metric;
+        storage.types[index] = MetricType.of(metric);
+        return new RegistrySnapshot(storage, size);
+    }
+
+    /**
+     * Constructs a new snapshot without the metric that is registered under the given name.
+     *
+     * @param name the name of the metric
+     * @return a new snapshot without the given metric, or this snapshot if no metric is registered under the given name
+     */
+    RegistrySnapshot without(String name) {
+
+        return without(Collections.singleton(name));
+    }
+
+    /**
+     * Constructs a new snapshot without the metrics that are registered under any of the given names, copying the remaining metrics once.
+     *
+     * @param names the names of the metrics
+     * @return a new snapshot without the given metrics, or this snapshot if no metric is registered under any of the given names
+     */
+    RegistrySnapshot without(Set<String> names) {
+
+        final Storage storage = new Storage(size);
+        int length = 0;
+        for (int index = 0; index < size; index++) {
+            if (!names.contains(this.storage.names[index])) {
+                storage.names[length] = this.storage.names[index];
+                storage.metrics[length] = this.storage.metrics[index];
+                storage.types[length] = this.storage.types[index];
+                length++;
+            }
+        }
+        if (length == size) { return this; }
+
+        storage.length = length;
+        return new RegistrySnapshot(storage, length);
+    }
+
+    private int indexOf(String name) {
+
+        for (int index = 0; index < size; index++) {
+            if (storage.names[index].equals(name)) { return index; }
+        }
+        return -1;
+    }
+
+    private void checkIndex(int index) {
+
+        if (index < 0 || index >= size) { throw new IndexOutOfBoundsException("index " + index + " is out of bounds for size " + size); }
+    }
+
+    /** The arrays that back one or more snapshots, of which the first {@code length} slots are taken. */
+    private static final class Storage {
+
+        private final String[] names;
+        private final Metric[] metrics;
+        private final MetricType[] types;
+        private int length;
+
+        private Storage(int capacity) {
+
+            names = new String[capacity];
+            metrics = new Metric[capacity];
+            types = new MetricType[capacity];
+        }
+
+        private Storage copy(int length, int capacity) {
+
+            final Storage copy = new Storage(capacity);
+            System.arraycopy(names, 0, copy.names, 0, length);
+            System.arraycopy(metrics, 0, copy.metrics, 0, length);
+            System.arraycopy(types, 0, copy.types, 0, length);
+            copy.length = length;
+            return copy;
+        }
+    }
+}
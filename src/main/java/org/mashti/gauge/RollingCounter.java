@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.mashti.gauge.util.CoarseClock;
+import org.mashti.gauge.util.LongAdder;
+
+/**
+ * A counter that answers the sum and the largest per-second count over any window of the last {@code length} seconds, including the current partial second.
+ * Reads are not destructive, so several consumers may share a counter.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class RollingCounter implements Metric {
+
+    public static final long DEFAULT_LENGTH_SECONDS = 60;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    public RollingCounter() {
+
+        this(DEFAULT_LENGTH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructs a new rolling counter.
+     *
+     * @param length the length of the ring, which is the longest window that can be queried
+     * @param unit the unit of the length
+     */
+    public RollingCounter(long length, TimeUnit unit) {
+
+        final long length_seconds = unit.toSeconds(length);
+        if (length_seconds < 1 || length_seconds > Integer.MAX_VALUE) { throw new IllegalArgumentException("length must be between one second and " + Integer.MAX_VALUE + " seconds"); }
+
+        buckets = new AtomicReferenceArray<>((int) length_seconds);
+    }
+
+    public void increment() {
+
+        add(1);
+    }
+
+    public void add(long n) {
+
+        add(n, CoarseClock.currentSecond());
+    }
+
+    void add(long n, long second) {
+
+        getBucket(second).adder.add(n);
+    }
+
+    /**
+     * Gets the sum of counts over the whole ring.
+     *
+     * @return the sum of counts over the last {@link #getLengthInSeconds() length} seconds
+     */
+    public long getSum() {
+
+        return getSum(buckets.length(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gets the sum of counts over the given window.
+     *
+     * @param window the window, of at least one second and at most the length of the ring
+     * @param unit the unit of the window
+     * @return the sum of counts over the given window
+     */
+    public long getSum(long window, TimeUnit unit) {
+
+        return getSum(window, unit, CoarseClock.currentSecond());
+    }
+
+    long getSum(long window, TimeUnit unit, long now) {
+
+        final long window_seconds = toWindowSeconds(window, unit);
+        long sum = 0;
+        for (int index = 0; index < buckets.length(); index++) {
+            final Bucket bucket = buckets.get(index);
+            if (bucket != null && isWithinWindow(bucket, now, window_seconds)) {
+                sum += bucket.adder.sum();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the largest count of a single second within the given window.
+     *
+     * @param window the window, of at least one second and at most the length of the ring
+     * @param unit the unit of the window
+     * @return the largest count of a single second within the given window
+     */
+    public long getMaxPerSecond(long window, TimeUnit unit) {
+
+        return getMaxPerSecond(window, unit, CoarseClock.currentSecond());
+    }
+
+    long getMaxPerSecond(long window, TimeUnit unit, long now) {
+
+        final long window_seconds = toWindowSeconds(window, unit);
+        long max = 0;
+        for (int index = 0; index < buckets.length(); index++) {
+            final Bucket bucket = buckets.get(index);
+            if (bucket != null && isWithinWindow(bucket, now, window_seconds)) {
+                max = Math.max(max, bucket.adder.sum());
+            }
+        }
+        return max;
+    }
+
+    public long getLengthInSeconds() {
+
+        return buckets.length();
+    }
+
+    private static boolean isWithinWindow(Bucket bucket, long now, long window_seconds) {
+
+        final long age = now - bucket.second;
+        return age >= 0 && age < window_seconds;
+    }
+
+    private long toWindowSeconds(long window, TimeUnit unit) {
+
+        final long window_seconds = unit.toSeconds(window);
+        if (window_seconds < 1 || window_seconds > buckets.length()) { throw new IllegalArgumentException("window must be between one second and the length of the ring, " + buckets.length() + " seconds"); }
+        return window_seconds;
+    }
+
+    private Bucket getBucket(long second) {
+
+        final int index = (int) (second % buckets.length());
+        Bucket bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new Bucket(second));
+            bucket = buckets.get(index);
+        }
+        if (bucket.second != second) {
+            bucket.recycle(second);
+        }
+        return bucket;
+    }
+
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitRollingCounter(this);
+    }
+
+    private static final class Bucket {
+
+        private final LongAdder adder;
+        private volatile long second;
+
+        private Bucket(long second) {
+
+            adder = new LongAdder();
+            this.second = second;
+        }
+
+        private synchronized void recycle(long second) {
+
+            if (this.second < second) {
+                adder.reset();
+                this.second = second;
+            }
+        }
+    }
+}
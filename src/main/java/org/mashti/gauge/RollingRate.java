@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.mashti.gauge.util.CoarseClock;
+
+/**
+ * A rate that answers the count, the mean rate and the peak per-second rate over any window of the last {@code length} seconds.
+ * Marks are counted by a {@link RollingCounter}; marking is therefore constant time and never locks, and reads are not destructive, so that several consumers may share a rate.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class RollingRate implements Metric {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final RollingCounter counter;
+    private final TimeUnit unit;
+    private final long start_time_nanos;
+
+    public RollingRate() {
+
+        this(TimeUnit.SECONDS);
+    }
+
+    public RollingRate(TimeUnit unit) {
+
+        this(unit, RollingCounter.DEFAULT_LENGTH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructs a new rolling rate.
+     *
+     * @param unit the unit of time of rates
+     * @param length the length of the ring, which is the longest window that can be queried
+     * @param length_unit the unit of the length
+     */
+    public RollingRate(TimeUnit unit, long length, TimeUnit length_unit) {
+
+        this(unit, new RollingCounter(length, length_unit));
+    }
+
+    RollingRate(TimeUnit unit, RollingCounter counter) {
+
+        this.unit = unit;
+        this.counter = counter;
+        start_time_nanos = System.nanoTime();
+    }
+
+    public void mark() {
+
+        mark(1);
+    }
+
+    public void mark(long n) {
+
+        counter.add(n);
+    }
+
+    public long getCount(long window, TimeUnit window_unit) {
+
+        return counter.getSum(window, window_unit);
+    }
+
+    /**
+     * Gets the mean rate over the given window.
+     * Since the window includes the current, partial, second, and may start before the construction of this rate, the count is divided by the time that has actually elapsed within the window.
+     *
+     * @param window the window, of at least one second and at most the length of the ring
+     * @param window_unit the unit of the window
+     * @return the mean number of marks per {@link #getUnit() unit} of time over the given window
+     */
+    public double getMeanRate(long window, TimeUnit window_unit) {
+
+        final long count = counter.getSum(window, window_unit);
+        if (count == 0) { return 0; }
+
+        final long now = System.nanoTime();
+        final long window_nanos = TimeUnit.SECONDS.toNanos(window_unit.toSeconds(window) - 1) + CoarseClock.nanosIntoCurrentSecond();
+        final long elapsed_nanos = Math.max(1, Math.min(window_nanos, now - start_time_nanos));
+        return count / (elapsed_nanos / NANOS_PER_SECOND) / toUnitsPerSecond();
+    }
+
+    /**
+     * Gets the rate of the busiest second within the given window.
+     *
+     * @param window the window, of at least one second and at most the length of the ring
+     * @param window_unit the unit of the window
+     * @return the peak number of marks per {@link #getUnit() unit} of time over the given window
+     */
+    public double getPeakRate(long window, TimeUnit window_unit) {
+
+        return counter.getMaxPerSecond(window, window_unit) / toUnitsPerSecond();
+    }
+
+    public long getLengthInSeconds() {
+
+        return counter.getLengthInSeconds();
+    }
+
+    public TimeUnit getUnit() {
+
+        return unit;
+    }
+
+    private double toUnitsPerSecond() {
+
+        return NANOS_PER_SECOND / unit.toNanos(1);
+    }
+
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitRollingRate(this);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Timer} that only times one in every {@code sampling_interval} invocations on average, while counting every invocation.
+ * {@link #stop(long)} records nothing for a start time of {@link #NOT_SAMPLED}, and direct {@link #update(long, TimeUnit) updates} are never skipped.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class SampledTimer extends Timer {
+
+    /** The start time of an invocation that is not timed. */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+    private final int sampling_interval;
+    private final Counter invocations;
+    private final ThreadLocal<Countdown> countdown;
+
+    public SampledTimer(int sampling_interval) {
+
+        this(TimeUnit.NANOSECONDS, sampling_interval);
+    }
+
+    public SampledTimer(TimeUnit unit, int sampling_interval) {
+
+        this(unit, sampling_interval, new SlidingWindowReservoir(Sampler.WINDOW_LIMIT));
+    }
+
+    /**
+     * Constructs a new sampled timer.
+     *
+     * @param unit the unit of timings
+     * @param sampling_interval the average number of invocations per timed invocation
+     * @param reservoir the reservoir of timings
+     */
+    public SampledTimer(TimeUnit unit, int sampling_interval, Reservoir reservoir) {
+
+        super(unit, reservoir);
+        if (sampling_interval < 1) { throw new IllegalArgumentException("sampling interval must be at least 1"); }
+
+        this.sampling_interval = sampling_interval;
+        invocations = new Counter();
+        countdown = new ThreadLocal<Countdown>() {
+
+            @Override
+            protected Countdown initialValue() {
+
+                return new Countdown();
+            }
+        };
+    }
+
+    /**
+     * Counts an invocation, and starts a timing if the invocation is sampled.
+     *
+     * @return the start time in nanoseconds, or {@link #NOT_SAMPLED} if the invocation is not timed
+     */
+    @Override
+    public long start() {
+
+        invocations.increment();
+        final Countdown countdown = this.countdown.get();
+        if (--countdown.remaining > 0) { return NOT_SAMPLED; }
+
+        countdown.remaining = nextCountdown();
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops a timing that is started by {@link #start()} and records the elapsed time, unless the invocation is not sampled.
+     *
+     * @param start_time_nanos the start time in nanoseconds as returned by {@link #start()}
+     * @return the elapsed time since the given start time in nanoseconds, or zero if the invocation is not timed
+     */
+    @Override
+    public long stop(long start_time_nanos) {
+
+        if (start_time_nanos == NOT_SAMPLED) { return 0; }
+
+        final long elapsed = System.nanoTime() - start_time_nanos;
+        super.update(elapsed, TimeUnit.NANOSECONDS);
+        return elapsed;
+    }
+
+    @Override
+    public void update(long length, TimeUnit unit) {
+
+        invocations.increment();
+        super.update(length, unit);
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        return new CountedSnapshot(super.getAndReset(), invocations.getAndReset());
+    }
+
+    @Override
+    public Snapshot get() {
+
+        return new CountedSnapshot(super.get(), invocations.get());
+    }
+
+    /**
+     * Gets the exact number of invocations since the last reset.
+     *
+     * @return the exact number of invocations since the last reset
+     */
+    public long getCount() {
+
+        return invocations.get();
+    }
+
+    public int getSamplingInterval() {
+
+        return sampling_interval;
+    }
+
+    private int nextCountdown() {
+
+        return sampling_interval == 1 ? 1 : 1 + ThreadLocalRandom.current().nextInt(2 * sampling_interval - 1);
+    }
+
+    private final class Countdown {
+
+        private int remaining = nextCountdown();
+    }
+}
@@ -26,32 +26,51 @@
  */
 package org.mashti.gauge;
 
-import java.util.concurrent.atomic.AtomicReference;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
-
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
 public class Sampler implements Metric {
 
     public static final int WINDOW_LIMIT = 10000;
-    private final AtomicReference<SynchronizedDescriptiveStatistics> statistics;
+    private final Reservoir reservoir;
 
     public Sampler() {
 
-        statistics = new AtomicReference<SynchronizedDescriptiveStatistics>(new SynchronizedDescriptiveStatistics(WINDOW_LIMIT));
+        this(WINDOW_LIMIT);
+    }
+
+    /**
+     * Constructs a new sampler that keeps up to the given number of most recent samples per interval.
+     * For windows that are too large to be kept on the heap, use an {@link OffHeapReservoir} instead.
+     *
+     * @param window_size the maximum number of samples to keep per interval
+     */
+    public Sampler(int window_size) {
+
+        this(new SlidingWindowReservoir(window_size));
+    }
+
+    public Sampler(Reservoir reservoir) {
+
+        this.reservoir = reservoir;
     }
 
-    public SynchronizedDescriptiveStatistics getAndReset() {
+    public Snapshot getAndReset() {
 
-        return statistics.getAndSet(new SynchronizedDescriptiveStatistics(WINDOW_LIMIT));
+        return reservoir.getAndReset();
     }
 
     public void update(double sample) {
 
-        get().addValue(sample);
+        reservoir.update(sample);
+    }
+
+    public Snapshot get() {
+
+        return reservoir.get();
     }
 
-    protected SynchronizedDescriptiveStatistics get() {
+    @Override
+    public void accept(MetricVisitor visitor) {
 
-        return statistics.get();
+        visitor.visitSampler(this);
     }
 }
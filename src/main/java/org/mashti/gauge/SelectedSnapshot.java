@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+
+/**
+ * An immutable {@link Snapshot} of the moments and a few selected percentiles of samples.
+ * The percentiles between the selected ones are linearly interpolated, taking the minimum and the maximum as the 0th and the 100th percentiles.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+final class SelectedSnapshot implements Snapshot {
+
+    private final long n;
+    private final double min;
+    private final double mean;
+    private final double max;
+    private final double standard_deviation;
+    private final double[] percentiles;
+    private final double[] values;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param n the number of samples
+     * @param min the minimum sample
+     * @param mean the mean of samples
+     * @param max the maximum sample
+     * @param standard_deviation the standard deviation of samples
+     * @param percentiles the selected percentiles
+     * @param values the values of the selected percentiles, in the same order as the percentiles
+     */
+    SelectedSnapshot(long n, double min, double mean, double max, double standard_deviation, double[] percentiles, double[] values) {
+
+        this.n = n;
+        this.min = min;
+        this.mean = mean;
+        this.max = max;
+        this.standard_deviation = standard_deviation;
+        this.percentiles = percentiles.clone();
+        this.values = values.clone();
+        for (int i = 1; i < this.percentiles.length; i++) {
+            final double percentile = this.percentiles[i];
+            final double value = this.values[i];
+            int j = i;
+            while (j > 0 && this.percentiles[j - 1] > percentile) {
+                this.percentiles[j] = this.percentiles[j - 1];
+                this.values[j] = this.values[j - 1];
+                j--;
+            }
+            this.percentiles[j] = percentile;
+            this.values[j] = value;
+        }
+    }
+
+    @Override
+    public long getN() {
+
+        return n;
+    }
+
+    @Override
+    public double getMin() {
+
+        return min;
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return max;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        if (n == 0) { return Double.NaN; }
+        if (percentile <= 0) { return min; }
+        if (percentile >= 100) { return max; }
+
+        int index = Arrays.binarySearch(percentiles, percentile);
+        if (index >= 0) { return values[index]; }
+
+        index = -index - 1;
+        final double lower_percentile = index == 0 ? 0 : percentiles[index - 1];
+        final double lower_value = index == 0 ? min : values[index - 1];
+        final double upper_percentile = index == percentiles.length ? 100 : percentiles[index];
+        final double upper_value = index == percentiles.length ? max : values[index];
+        return lower_value + (upper_value - lower_value) * (percentile - lower_percentile) / (upper_percentile - lower_percentile);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.mashti.gauge.util.CoarseClock;
+import org.mashti.gauge.util.LogLinearHistogram;
+
+/**
+ * A {@link Reservoir} that summarises the samples recorded during a sliding window of time, at a resolution of one second.
+ * Snapshots are not destructive: {@link #getAndReset()} is equivalent to {@link #get()}.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class SlidingTimeWindowReservoir implements Reservoir {
+
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+    private final int significant_digits;
+    private final double lowest_discernible_value;
+    private final double highest_trackable_value;
+    private final AtomicReferenceArray<Slot> slots;
+    private final LogLinearHistogram merged;
+
+    public SlidingTimeWindowReservoir() {
+
+        this(DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public SlidingTimeWindowReservoir(long window, TimeUnit unit) {
+
+        this(window, unit, HistogramReservoir.DEFAULT_SIGNIFICANT_DIGITS, HistogramReservoir.DEFAULT_LOWEST_DISCERNIBLE_VALUE, HistogramReservoir.DEFAULT_HIGHEST_TRACKABLE_VALUE);
+    }
+
+    public SlidingTimeWindowReservoir(long window, TimeUnit unit, int significant_digits, double lowest_discernible_value, double highest_trackable_value) {
+
+        final long window_seconds = unit.toSeconds(window);
+        if (window_seconds < 1 || window_seconds > Integer.MAX_VALUE) { throw new IllegalArgumentException("window must be between one second and " + Integer.MAX_VALUE + " seconds"); }
+
+        this.significant_digits = significant_digits;
+        this.lowest_discernible_value = lowest_discernible_value;
+        this.highest_trackable_value = highest_trackable_value;
+        slots = new AtomicReferenceArray<>((int) window_seconds);
+        merged = newHistogram();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        update(sample, CoarseClock.currentSecond());
+    }
+
+    @Override
+    public Snapshot get() {
+
+        return get(CoarseClock.currentSecond());
+    }
+
+    void update(double sample, long second) {
+
+        getSlot(second).histogram.record(sample);
+    }
+
+    synchronized Snapshot get(long now) {
+
+        merged.reset();
+        for (int index = 0; index < slots.length(); index++) {
+            final Slot slot = slots.get(index);
+            if (slot != null && now - slot.second < slots.length()) {
+                merged.add(slot.histogram);
+            }
+        }
+        return new HistogramSnapshot(merged);
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        return get();
+    }
+
+    private Slot getSlot(long second) {
+
+        final int index = (int) (second % slots.length());
+        Slot slot = slots.get(index);
+        if (slot == null) {
+            slots.compareAndSet(index, null, new Slot(newHistogram(), second));
+            slot = slots.get(index);
+        }
+        if (slot.second != second) {
+            slot.recycle(second);
+        }
+        return slot;
+    }
+
+    private LogLinearHistogram newHistogram() {
+
+        return new LogLinearHistogram(significant_digits, lowest_discernible_value, highest_trackable_value);
+    }
+
+    private static final class Slot {
+
+        private final LogLinearHistogram histogram;
+        private volatile long second;
+
+        private Slot(LogLinearHistogram histogram, long second) {
+
+            this.histogram = histogram;
+            this.second = second;
+        }
+
+        private synchronized void recycle(long second) {
+
+            if (this.second < second) {
+                histogram.reset();
+                this.second = second;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.mashti.gauge.util.WriterReaderPhaser;
+
+/**
+ * A {@link Reservoir} that keeps the last {@code size} samples of an interval.
+ * Snapshots taken by {@link #get()} may include samples that are concurrently recorded.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class SlidingWindowReservoir implements Reservoir {
+
+    private static final int MIN_CHUNK_SIZE = 16;
+    private final WriterReaderPhaser phaser;
+    private volatile Window active;
+    private Window inactive;
+
+    public SlidingWindowReservoir(int size) {
+
+        if (size < 1) { throw new IllegalArgumentException("size must be at least 1"); }
+
+        phaser = new WriterReaderPhaser();
+        active = new Window(size);
+        inactive = new Window(size);
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final long critical_value = phaser.writerCriticalSectionEnter();
+        try {
+            active.add(sample);
+        }
+        finally {
+            phaser.writerCriticalSectionExit(critical_value);
+        }
+    }
+
+    @Override
+    public Snapshot get() {
+
+        return active.getSnapshot();
+    }
+
+    @Override
+    public Snapshot getAndReset() {
+
+        phaser.readerLock();
+        try {
+            final Window sampled = active;
+            active = inactive;
+            inactive = sampled;
+            phaser.flipPhase();
+
+            final Snapshot snapshot = sampled.getSnapshot();
+            sampled.reset();
+            return snapshot;
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    private static final class Window {
+
+        private final int size;
+        private final AtomicReferenceArray<double[]> chunks;
+        private final AtomicLong count;
+
+        private Window(int size) {
+
+            this.size = size;
+            chunks = new AtomicReferenceArray<>(chunkIndexOf(size - 1) + 1);
+            count = new AtomicLong();
+        }
+
+        private static int chunkIndexOf(int position) {
+
+            return 31 - Integer.numberOfLeadingZeros(position / MIN_CHUNK_SIZE + 1);
+        }
+
+        private static int chunkStartOf(int chunk_index) {
+
+            return MIN_CHUNK_SIZE * ((1 << chunk_index) - 1);
+        }
+
+        private void add(double sample) {
+
+            final int position = (int) (count.getAndIncrement() % size);
+            final int chunk_index = chunkIndexOf(position);
+            double[] chunk = chunks.get(chunk_index);
+            if (chunk == null) {
+                final int chunk_start = chunkStartOf(chunk_index);
+                chunks.compareAndSet(chunk_index, null, new double[Math.min(MIN_CHUNK_SIZE << chunk_index, size - chunk_start)]);
+                chunk = chunks.get(chunk_index);
+            }
+            chunk[position - chunkStartOf(chunk_index)] = sample;
+        }
+
+        private Snapshot getSnapshot() {
+
+            final int length = (int) Math.min(count.get(), size);
+            final double[] values = new double[length];
+            int copied = 0;
+            for (int chunk_index = 0; copied < length; chunk_index++) {
+                final double[] chunk = chunks.get(chunk_index);
+                if (chunk == null) {
+                    break;
+                }
+                final int chunk_length = Math.min(chunk.length, length - copied);
+                System.arraycopy(chunk, 0, values, copied, chunk_length);
+                copied += chunk_length;
+            }
+            return new UniformSnapshot(copied == length ? values : Arrays.copyOf(values, copied));
+        }
+
+        private void reset() {
+
+            count.set(0);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+/**
+ * A read-only statistical summary of the samples recorded by a {@link Reservoir}.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public interface Snapshot {
+
+    /**
+     * Gets the number of samples summarised by this snapshot.
+     *
+     * @return the number of samples
+     */
+    long getN();
+
+    /**
+     * Gets the smallest sample, or {@link Double#NaN} if this snapshot is empty.
+     *
+     * @return the smallest sample
+     */
+    double getMin();
+
+    /**
+     * Gets the arithmetic mean of the samples, or {@link Double#NaN} if this snapshot is empty.
+     *
+     * @return the arithmetic mean of the samples
+     */
+    double getMean();
+
+    /**
+     * Gets the largest sample, or {@link Double#NaN} if this snapshot is empty.
+     *
+     * @return the largest sample
+     */
+    double getMax();
+
+    /**
+     * Gets the sample standard deviation, or {@link Double#NaN} if this snapshot is empty.
+     *
+     * @return the sample standard deviation
+     */
+    double getStandardDeviation();
+
+    /**
+     * Gets an estimate of the given percentile of the samples, or {@link Double#NaN} if this snapshot is empty.
+     *
+     * @param percentile the percentile within range {@code 0 < percentile <= 100}
+     * @return an estimate of the given percentile of the samples
+     */
+    double getPercentile(double percentile);
+}
@@ -27,7 +27,6 @@
 package org.mashti.gauge;
 
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
 public class Timer implements Metric {
@@ -42,8 +41,13 @@ public class Timer implements Metric {
 
     public Timer(TimeUnit unit) {
 
+        this(unit, new SlidingWindowReservoir(Sampler.WINDOW_LIMIT));
+    }
+
+    public Timer(TimeUnit unit, Reservoir reservoir) {
+
         this.unit = unit;
-        sampler = new Sampler();
+        sampler = new Sampler(reservoir);
     }
 
     public void update(long length, TimeUnit unit) {
@@ -51,7 +55,7 @@ public class Timer implements Metric {
         sampler.update(normalizeUnit(length, unit));
     }
 
-    public SynchronizedDescriptiveStatistics getAndReset() {
+    public Snapshot getAndReset() {
 
         return sampler.getAndReset();
     }
@@ -61,12 +65,47 @@ public class Timer implements Metric {
         return new Time();
     }
 
+    /**
+     * Starts a timing without allocating any object.
+     * The returned value must be passed to {@link #stop(long)} in order to record the timing.
+     *
+     * @return the start time in nanoseconds
+     */
+    public long start() {
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops a timing that is started by {@link #start()} and records the elapsed time.
+     *
+     * @param start_time_nanos the start time in nanoseconds as returned by {@link #start()}
+     * @return the elapsed time since the given start time in nanoseconds
+     */
+    public long stop(long start_time_nanos) {
+
+        final long elapsed = System.nanoTime() - start_time_nanos;
+        update(elapsed, TimeUnit.NANOSECONDS);
+        return elapsed;
+    }
+
+    /**
+     * Constructs a new reusable timing context for this timer.
+     * A context is intended to be constructed once per thread and reused for every timing, typically in a try-with-resources statement.
+     *
+     * @return a new reusable timing context
+     */
+    public Context newContext() {
+
+        return new Context(this);
+    }
+
     public TimeUnit getUnit() {
 
         return unit;
     }
 
-    protected SynchronizedDescriptiveStatistics get() {
+    public Snapshot get() {
 
         return sampler.get();
     }
@@ -76,13 +115,19 @@ public class Timer implements Metric {
         return this.unit.convert(length, unit);
     }
 
+    @Override
+    public void accept(MetricVisitor visitor) {
+
+        visitor.visitTimer(this);
+    }
+
     public class Time {
 
         private final long start_time_nanos;
 
         private Time() {
 
-            start_time_nanos = System.nanoTime();
+            start_time_nanos = start();
         }
 
         /**
@@ -92,9 +137,7 @@ public class Timer implements Metric {
          */
         public long stop() {
 
-            final long elapsed = System.nanoTime() - start_time_nanos;
-            update(elapsed, TimeUnit.NANOSECONDS);
-            return elapsed;
+            return Timer.this.stop(start_time_nanos);
         }
 
         /**
@@ -107,4 +150,52 @@ public class Timer implements Metric {
             return start_time_nanos;
         }
     }
+
+    /**
+     * A reusable timing that records into a {@link Timer} when {@link #close() closed}.
+     * A context is not thread-safe; each thread should use its own context.
+     * <pre>{@code
+     * try (Timer.Context ignored = context.start()) {
+     *     // timed operation
+     * }
+     * }</pre>
+     */
+    public static class Context implements AutoCloseable {
+
+        private final Timer timer;
+        private long start_time_nanos;
+
+        private Context(Timer timer) {
+
+            this.timer = timer;
+        }
+
+        /**
+         * Starts a new timing in this context.
+         *
+         * @return this context
+         */
+        public Context start() {
+
+            start_time_nanos = timer.start();
+            return this;
+        }
+
+        /**
+         * Stops the current timing of this context and returns the elapsed time in nanoseconds.
+         *
+         * @return the elapsed time since the last call to {@link #start()} in nanoseconds
+         */
+        public long stop() {
+
+            return timer.stop(start_time_nanos);
+        }
+
+        /** Stops the current timing of this context. */
+        @Override
+        public void close() {
+
+            stop();
+        }
+    }
 }
@@ -0,0 +1,350 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import org.mashti.gauge.util.WriterReaderPhaser;
+
+/**
+ * A {@link Reservoir} that keeps a uniform random sample of up to {@code size} samples per updating thread per interval, whose moments are exact and whose percentiles are weighted by the rate of each thread.
+ * Every thread that has updated the reservoir in the last two intervals holds two buffers of {@code size} samples.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class UniformReservoir implements Reservoir {
+
+    public static final int DEFAULT_SIZE = 1028;
+    private final int size;
+    private final ThreadLocal<Lane> local_lane;
+    private final Queue<Lane> lanes;
+
+    public UniformReservoir() {
+
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a new reservoir.
+     *
+     * @param size the maximum number of samples to keep per updating thread per interval
+     */
+    public UniformReservoir(int size) {
+
+        if (size < 1) { throw new IllegalArgumentException("size must be at least 1"); }
+
+        this.size = size;
+        local_lane = new ThreadLocal<>();
+        lanes = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public void update(double sample) {
+
+        final Lane lane = local_lane.get();
+        if (lane == null || !lane.offer(sample)) {
+            final Lane new_lane = new Lane();
+            lanes.add(new_lane);
+            local_lane.set(new_lane);
+            new_lane.offer(sample);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned snapshot is taken while samples may still be recorded, and may therefore be slightly inconsistent.
+     */
+    @Override
+    public synchronized Snapshot get() {
+
+        final Interval[] intervals = new Interval[lanes.size()];
+        int length = 0;
+        for (Lane lane : lanes) {
+            if (length == intervals.length) {
+                break;
+            }
+            intervals[length++] = lane.active;
+        }
+        return getSnapshot(intervals, length);
+    }
+
+    @Override
+    public synchronized Snapshot getAndReset() {
+
+        final Interval[] intervals = new Interval[lanes.size()];
+        int length = 0;
+        final Iterator<Lane> iterator = lanes.iterator();
+        while (iterator.hasNext() && length < intervals.length) {
+            final Lane lane = iterator.next();
+            final Interval sampled = lane.flip();
+            intervals[length++] = sampled;
+            if (lane.retired) {
+                iterator.remove();
+            }
+            else if (sampled.count == 0) {
+                lane.retired = true;
+            }
+        }
+
+        final Snapshot snapshot = getSnapshot(intervals, length);
+        for (int i = 0; i < length; i++) {
+            intervals[i].reset();
+        }
+        return snapshot;
+    }
+
+    private Snapshot getSnapshot(Interval[] intervals, int length) {
+
+        int sample_count = 0;
+        long n = 0;
+        double mean = 0;
+        double squared_deviations = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            final Interval interval = intervals[i];
+            final long count = interval.count;
+            if (count == 0) {
+                continue;
+            }
+
+            final double mean_deviation = interval.sum / count;
+            final double interval_mean = interval.shift + mean_deviation;
+            final double interval_squared_deviations = Math.max(0, interval.sum_of_squares - interval.sum * mean_deviation);
+            final long total = n + count;
+            final double delta = interval_mean - mean;
+            mean += delta * count / total;
+            squared_deviations += interval_squared_deviations + delta * delta * n * count / total;
+            n = total;
+            min = Math.min(min, interval.min);
+            max = Math.max(max, interval.max);
+            sample_count += interval.getSampleCount();
+        }
+
+        final double[] values = new double[sample_count];
+        final double[] weights = new double[sample_count];
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            final Interval interval = intervals[i];
+            final double[] interval_values = interval.values;
+            final long count = interval.count;
+            final int interval_sample_count = interval_values == null ? 0 : (int) Math.min(count, size);
+            final double weight = (double) count / interval_sample_count;
+            for (int j = 0; j < interval_sample_count && index < sample_count; j++, index++) {
+                values[index] = interval_values[j];
+                weights[index] = weight;
+            }
+        }
+
+        return new SampledSnapshot(new WeightedSnapshot(values, weights, index), n, min, mean, max, squared_deviations);
+    }
+
+    private static double nextUniform() {
+
+        return 1 - ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * The samples of a thread, which are only ever updated by the thread that created the lane.
+     * A lane is retired once it is idle for a whole interval, and is removed at the following reset, after which its thread creates a new lane.
+     */
+    private final class Lane {
+
+        private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+        private volatile Interval active = new Interval();
+        private Interval inactive = new Interval();
+        private volatile boolean retired;
+
+        private boolean offer(double sample) {
+
+            final long critical_value = phaser.writerCriticalSectionEnter();
+            try {
+                if (retired) { return false; }
+                active.offer(sample);
+                return true;
+            }
+            finally {
+                phaser.writerCriticalSectionExit(critical_value);
+            }
+        }
+
+        private Interval flip() {
+
+            phaser.readerLock();
+            try {
+                final Interval sampled = active;
+                active = inactive;
+                inactive = sampled;
+                phaser.flipPhase();
+                return sampled;
+            }
+            finally {
+                phaser.readerUnlock();
+            }
+        }
+    }
+
+    /** The sample and the moments of a lane in an interval. To preserve the precision of the sum of squares, samples are shifted by the mean of an earlier interval or, initially, by the first sample. */
+    private final class Interval {
+
+        private double[] values;
+        private long count;
+        private long next;
+        private double skip_weight;
+        private double shift = Double.NaN;
+        private double sum;
+        private double sum_of_squares;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private void offer(double sample) {
+
+            if (Double.isNaN(shift)) {
+                shift = sample;
+            }
+            final double deviation = sample - shift;
+            sum += deviation;
+            sum_of_squares += deviation * deviation;
+            if (sample < min) {
+                min = sample;
+            }
+            if (sample > max) {
+                max = sample;
+            }
+
+            final long index = count++;
+            if (index < size) {
+                if (values == null) {
+                    values = new double[size];
+                }
+                values[(int) index] = sample;
+                if (count == size) {
+                    skip_weight = Math.exp(Math.log(nextUniform()) / size);
+                    next = count;
+                    skip();
+                }
+            }
+            else if (count == next) {
+                values[ThreadLocalRandom.current().nextInt(size)] = sample;
+                skip_weight *= Math.exp(Math.log(nextUniform()) / size);
+                skip();
+            }
+        }
+
+        private void skip() {
+
+            next += (long) Math.floor(Math.log(nextUniform()) / Math.log1p(-skip_weight)) + 1;
+        }
+
+        private int getSampleCount() {
+
+            return (int) Math.min(count, size);
+        }
+
+        /** Resets this interval, keeping its buffer; must only be called while no samples are being offered. */
+        private void reset() {
+
+            if (count > 0) {
+                shift += sum / count;
+            }
+            count = 0;
+            next = 0;
+            skip_weight = 0;
+            sum = 0;
+            sum_of_squares = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /** A snapshot with exact moments, minimum and maximum, and percentiles estimated from a weighted sample. */
+    private static final class SampledSnapshot implements Snapshot {
+
+        private final Snapshot sample;
+        private final long n;
+        private final double min;
+        private final double mean;
+        private final double max;
+        private final double standard_deviation;
+
+        private SampledSnapshot(Snapshot sample, long n, double min, double mean, double max, double squared_deviations) {
+
+            this.sample = sample;
+            this.n = n;
+            if (n == 0) {
+                this.min = Double.NaN;
+                this.mean = Double.NaN;
+                this.max = Double.NaN;
+                standard_deviation = Double.NaN;
+            }
+            else {
+                this.min = min;
+                this.mean = mean;
+                this.max = max;
+                standard_deviation = n == 1 ? 0 : Math.sqrt(squared_deviations / (n - 1));
+            }
+        }
+
+        @Override
+        public long getN() {
+
+            return n;
+        }
+
+        @Override
+        public double getMin() {
+
+            return min;
+        }
+
+        @Override
+        public double getMean() {
+
+            return mean;
+        }
+
+        @Override
+        public double getMax() {
+
+            return max;
+        }
+
+        @Override
+        public double getStandardDeviation() {
+
+            return standard_deviation;
+        }
+
+        @Override
+        public double getPercentile(double percentile) {
+
+            return percentile == 100 ? max : sample.getPercentile(percentile);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+
+/**
+ * An immutable {@link Snapshot} of equally weighted samples, whose percentiles are interpolated between the closest ranks in the same way as Apache Commons Math.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class UniformSnapshot implements Snapshot {
+
+    private final double[] values;
+    private final double mean;
+    private final double standard_deviation;
+
+    /**
+     * Constructs a new snapshot of the given samples.
+     * The given array is copied, and may be modified after construction.
+     *
+     * @param values the samples
+     * @param length the number of samples to take from the given array
+     */
+    public UniformSnapshot(double[] values, int length) {
+
+        this(Arrays.copyOf(values, length));
+    }
+
+    /**
+     * Constructs a new snapshot that takes ownership of the given samples, which are sorted in place and must not be modified after construction.
+     *
+     * @param values the samples
+     */
+    UniformSnapshot(double[] values) {
+
+        this.values = values;
+        Arrays.sort(values);
+
+        final int length = values.length;
+        if (length == 0) {
+            mean = Double.NaN;
+            standard_deviation = Double.NaN;
+        }
+        else {
+            double sum = 0;
+            for (double value : this.values) {
+                sum += value;
+            }
+            mean = sum / length;
+
+            double squared_deviations = 0;
+            for (double value : this.values) {
+                final double deviation = value - mean;
+                squared_deviations += deviation * deviation;
+            }
+            standard_deviation = length == 1 ? 0 : Math.sqrt(squared_deviations / (length - 1));
+        }
+    }
+
+    @Override
+    public long getN() {
+
+        return values.length;
+    }
+
+    @Override
+    public double getMin() {
+
+        return values.length == 0 ? Double.NaN : values[0];
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return values.length == 0 ? Double.NaN : values[values.length - 1];
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        final int length = values.length;
+        if (length == 0) { return Double.NaN; }
+
+        final double position = percentile * (length + 1) / 100;
+        if (position < 1) { return values[0]; }
+        if (position >= length) { return values[length - 1]; }
+
+        final int lower = (int) position;
+        return values[lower - 1] + (position - lower) * (values[lower] - values[lower - 1]);
+    }
+}
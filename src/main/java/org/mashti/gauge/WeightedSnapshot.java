@@ -0,0 +1,150 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+
+/**
+ * An immutable {@link Snapshot} of weighted samples, where each sample contributes to the statistics in proportion to its weight.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class WeightedSnapshot implements Snapshot {
+
+    private final double[] values;
+    private final double[] quantiles;
+    private final double mean;
+    private final double standard_deviation;
+
+    /**
+     * Constructs a new snapshot of the given weighted samples.
+     * The given arrays are copied, and may be modified after construction.
+     *
+     * @param values the samples
+     * @param weights the non-negative weights of the samples
+     * @param length the number of samples to take from the given arrays
+     */
+    public WeightedSnapshot(double[] values, double[] weights, int length) {
+
+        final Sample[] samples = new Sample[length];
+        double total_weight = 0;
+        for (int i = 0; i < length; i++) {
+            samples[i] = new Sample(values[i], weights[i]);
+            total_weight += weights[i];
+        }
+        Arrays.sort(samples);
+
+        this.values = new double[length];
+        quantiles = new double[length];
+        final double[] normalized_weights = new double[length];
+
+        double weighted_sum = 0;
+        double cumulative = 0;
+        for (int i = 0; i < length; i++) {
+            final double weight = total_weight == 0 ? 1.0 / length : samples[i].weight / total_weight;
+            this.values[i] = samples[i].value;
+            normalized_weights[i] = weight;
+            quantiles[i] = cumulative;
+            cumulative += weight;
+            weighted_sum += weight * samples[i].value;
+        }
+
+        if (length == 0) {
+            mean = Double.NaN;
+            standard_deviation = Double.NaN;
+        }
+        else {
+            mean = weighted_sum;
+            double variance = 0;
+            for (int i = 0; i < length; i++) {
+                final double deviation = this.values[i] - mean;
+                variance += normalized_weights[i] * deviation * deviation;
+            }
+            standard_deviation = Math.sqrt(variance);
+        }
+    }
+
+    @Override
+    public long getN() {
+
+        return values.length;
+    }
+
+    @Override
+    public double getMin() {
+
+        return values.length == 0 ? Double.NaN : values[0];
+    }
+
+    @Override
+    public double getMean() {
+
+        return mean;
+    }
+
+    @Override
+    public double getMax() {
+
+        return values.length == 0 ? Double.NaN : values[values.length - 1];
+    }
+
+    @Override
+    public double getStandardDeviation() {
+
+        return standard_deviation;
+    }
+
+    @Override
+    public double getPercentile(double percentile) {
+
+        if (values.length == 0) { return Double.NaN; }
+
+        int index = Arrays.binarySearch(quantiles, percentile / 100);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return values[Math.max(0, Math.min(index, values.length - 1))];
+    }
+
+    private static final class Sample implements Comparable<Sample> {
+
+        private final double value;
+        private final double weight;
+
+        private Sample(double value, double weight) {
+
+            this.value = value;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Sample other) {
+
+            return Double.compare(value, other.value);
+        }
+    }
+}
@@ -32,7 +32,7 @@ import java.net.Socket;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
@@ -44,7 +44,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
-public class GangliaMetricGauge implements Gauge<String> {
+public class GangliaMetricGauge extends AbstractGauge<String> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GangliaMetricGauge.class);
     private static final int DEFAULT_GMETAD_INTERACTIVE_PORT = 8652;
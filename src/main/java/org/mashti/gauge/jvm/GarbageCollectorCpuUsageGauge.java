@@ -31,14 +31,14 @@ import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 import static org.mashti.gauge.jvm.ThreadCpuUsageGauge.RUNTIME_MX_BEAN;
 
 /**
  * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
  */
-public class GarbageCollectorCpuUsageGauge implements Gauge<Double> {
+public class GarbageCollectorCpuUsageGauge extends AbstractGauge<Double> {
 
     static final List<GarbageCollectorMXBean> GARBAGE_COLLECTOR_MX_BEANS = ManagementFactory.getGarbageCollectorMXBeans();
     private final AtomicLong previous_start_time_millis;
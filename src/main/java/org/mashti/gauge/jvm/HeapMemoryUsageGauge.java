@@ -28,14 +28,14 @@ package org.mashti.gauge.jvm;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 /**
  * Measures heap  memory usage of this JVM in bytes.
  *
  * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
  */
-public class HeapMemoryUsageGauge implements Gauge<Long> {
+public class HeapMemoryUsageGauge extends AbstractGauge<Long> {
 
     static final MemoryMXBean MEMORY_MX_BEAN = ManagementFactory.getMemoryMXBean();
 
@@ -26,14 +26,14 @@
  */
 package org.mashti.gauge.jvm;
 
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 /**
  * Measures heap and non-heap memory usage of this JVM in bytes.
  *
  * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
  */
-public class MemoryUsageGauge implements Gauge<Long> {
+public class MemoryUsageGauge extends AbstractGauge<Long> {
 
     private static final HeapMemoryUsageGauge HEAP_MEMORY_USAGE_GAUGE = new HeapMemoryUsageGauge();
     private static final NonHeapMemoryUsageGauge NON_HEAP_MEMORY_USAGE_GAUGE = new NonHeapMemoryUsageGauge();
@@ -26,7 +26,7 @@
  */
 package org.mashti.gauge.jvm;
 
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 import static org.mashti.gauge.jvm.HeapMemoryUsageGauge.MEMORY_MX_BEAN;
 
@@ -35,7 +35,7 @@ import static org.mashti.gauge.jvm.HeapMemoryUsageGauge.MEMORY_MX_BEAN;
  *
  * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
  */
-public class NonHeapMemoryUsageGauge implements Gauge<Long> {
+public class NonHeapMemoryUsageGauge extends AbstractGauge<Long> {
 
     /**
      * Gets the current usage of the non-heap memory in bytes.
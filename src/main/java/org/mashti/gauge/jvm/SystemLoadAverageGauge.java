@@ -28,10 +28,10 @@ package org.mashti.gauge.jvm;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
-public class SystemLoadAverageGauge implements Gauge<Double> {
+public class SystemLoadAverageGauge extends AbstractGauge<Double> {
 
     static final OperatingSystemMXBean OS_MX_BEAN = ManagementFactory.getOperatingSystemMXBean();
 
@@ -26,12 +26,12 @@
  */
 package org.mashti.gauge.jvm;
 
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 import static org.mashti.gauge.jvm.ThreadCpuUsageGauge.THREAD_MX_BEAN;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
-public class ThreadCountGauge implements Gauge<Integer> {
+public class ThreadCountGauge extends AbstractGauge<Integer> {
 
     /**
      * Gets the current number of live threads including both daemon and non-daemon threads.
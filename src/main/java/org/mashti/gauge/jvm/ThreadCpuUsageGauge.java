@@ -31,12 +31,12 @@ import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadMXBean;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import org.mashti.gauge.Gauge;
+import org.mashti.gauge.AbstractGauge;
 
 import static java.lang.Math.max;
 
 /** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
-public class ThreadCpuUsageGauge implements Gauge<Double> {
+public class ThreadCpuUsageGauge extends AbstractGauge<Double> {
 
     static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
     static final RuntimeMXBean RUNTIME_MX_BEAN = ManagementFactory.getRuntimeMXBean();
@@ -28,32 +28,53 @@ package org.mashti.gauge.reporter;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 import org.mashti.gauge.Counter;
 import org.mashti.gauge.Gauge;
+import org.mashti.gauge.IntervalCorrectedTimer;
 import org.mashti.gauge.Metric;
+import org.mashti.gauge.MetricFamily;
 import org.mashti.gauge.MetricRegistry;
+import org.mashti.gauge.MetricRegistryListener;
+import org.mashti.gauge.MetricVisitor;
+import org.mashti.gauge.MomentsSnapshot;
 import org.mashti.gauge.Rate;
+import org.mashti.gauge.RollingCounter;
+import org.mashti.gauge.RollingRate;
 import org.mashti.gauge.Sampler;
+import org.mashti.gauge.Snapshot;
 import org.mashti.gauge.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
-public class CsvReporter extends ScheduledReporter {
+/**
+ * Reports the metrics of a registry into one CSV file per metric, or in {@link #setWideFormat(boolean) wide format} into segment files named after the registry with one row per report.
+ * Files are kept open until their metric is removed or the reporter is {@link #stop() stopped}, and are written every {@link #setFlushInterval(int) flush interval}.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class CsvReporter extends ScheduledReporter implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CsvReporter.class);
     private static final File WORKING_DIRECTORY = new File(System.getProperty("user.dir"));
     private final Path reports_home;
     private final AtomicLong report_counter = new AtomicLong();
+    private final Map<String, MetricWriter> writers_by_name;
+    private final WriterMaintainer maintainer;
+    private volatile MetricWriter[] writers;
+    private volatile int flush_interval = 1;
+    private volatile boolean force_on_flush;
+    private volatile WideFile wide_file;
     private boolean count_as_timestamp;
 
     public CsvReporter(final MetricRegistry registry) {
@@ -70,6 +91,10 @@ public class CsvReporter extends ScheduledReporter {
 
         super(registry);
         this.reports_home = reports_home;
+        writers_by_name = new LinkedHashMap<>(); // respect insertion order
+        writers = new MetricWriter[0];
+        maintainer = new WriterMaintainer();
+        registry.addListener(maintainer);
         LOGGER.debug("CSV reporter directory is set to {}", reports_home);
     }
 
@@ -78,90 +103,542 @@ public class CsvReporter extends ScheduledReporter {
         this.count_as_timestamp = count_as_timestamp;
     }
 
+    /**
+     * Sets the number of reports after which the buffered lines are written to the files.
+     *
+     * @param flush_interval the number of reports between writes
+     * @throws IllegalArgumentException if the given interval is less than one
+     */
+    public void setFlushInterval(int flush_interval) {
+
+        if (flush_interval < 1) { throw new IllegalArgumentException("flush interval must be at least one report"); }
+        this.flush_interval = flush_interval;
+    }
+
+    /**
+     * Sets whether to report all metrics into a single file with one row per report, instead of one file per metric.
+     *
+     * @param wide_format whether to report in wide format
+     */
+    public synchronized void setWideFormat(boolean wide_format) {
+
+        if (wide_format && wide_file == null) {
+            wide_file = new WideFile(getRegistry().getName());
+        }
+        else if (!wide_format && wide_file != null) {
+            wide_file.close();
+            wide_file = null;
+        }
+    }
+
+    /**
+     * Sets whether to force the written lines to the storage device every time the files are flushed.
+     *
+     * @param force_on_flush whether to force the written lines to the storage device on flush
+     */
+    public void setForceOnFlush(boolean force_on_flush) {
+
+        this.force_on_flush = force_on_flush;
+    }
+
     @Override
     public void report() {
 
-        final long timestamp = getTimeStamp();
-        for (Map.Entry<String, Metric> registered_metric : getRegistry().getRegisteredMetrics()
-                .entrySet()) {
-            final String name = registered_metric.getKey();
-            final Metric metric = registered_metric.getValue();
-
-            if (metric instanceof Counter) {
-                Counter counter = (Counter) metric;
-                reportCounter(timestamp, name, counter);
-            }
-            else if (metric instanceof Rate) {
-                Rate rate = (Rate) metric;
-                reportRate(timestamp, name, rate);
+        final long report_count = report_counter.getAndIncrement();
+        final long timestamp = count_as_timestamp ? report_count : System.nanoTime();
+        final boolean flush = (report_count + 1) % flush_interval == 0;
+        final MetricWriter[] writers = this.writers;
+        final WideFile wide_file = this.wide_file;
+        if (wide_file != null) {
+            final WideRow row = new WideRow(timestamp);
+            for (MetricWriter writer : writers) {
+                writer.write(timestamp, row);
             }
-            else if (metric instanceof Sampler) {
-                Sampler sampler = (Sampler) metric;
-                reportSampler(timestamp, name, sampler);
+            wide_file.append(row);
+            if (flush) {
+                wide_file.flush(force_on_flush);
             }
-            else if (metric instanceof Timer) {
-                Timer timer = (Timer) metric;
-                reportTimer(timestamp, name, timer);
+            return;
+        }
+
+        for (MetricWriter writer : writers) {
+            writer.write(timestamp, null);
+        }
+        if (flush) {
+            for (MetricWriter writer : writers) {
+                writer.flush(force_on_flush);
             }
-            else if (metric instanceof Gauge) {
-                Gauge<?> gauge = (Gauge<?>) metric;
-                reportGauge(timestamp, name, gauge);
+        }
+    }
+
+    /** Stops the scheduled reports, and flushes and closes the files; the files are reopened if the reporter reports again. */
+    @Override
+    public synchronized void stop() {
+
+        super.stop();
+        for (MetricWriter writer : writers) {
+            writer.close();
+        }
+        if (wide_file != null) {
+            wide_file.close();
+        }
+    }
+
+    /** Stops the scheduled reports, stops listening to the changes of the registry, and closes the files for good; once closed, the reporter no longer reports any metric. */
+    @Override
+    public synchronized void close() {
+
+        stop();
+        getRegistry().removeListener(maintainer);
+        synchronized (writers_by_name) {
+            for (MetricWriter writer : writers_by_name.values()) {
+                writer.retire();
             }
-            else {
-                LOGGER.warn("unknown metric {}, named {}: skipped from csv report at time {}", metric, name, timestamp);
+            writers_by_name.clear();
+            writers = new MetricWriter[0];
+        }
+    }
+
+    private void reportTimer(long timestamp, MetricWriter writer, Labels labels, Timer timer) {
+
+        reportTimer(timestamp, writer.getSink(), labels, timer.getAndReset(), timer.getUnit());
+        if (timer instanceof IntervalCorrectedTimer) {
+            final IntervalCorrectedTimer corrected_timer = (IntervalCorrectedTimer) timer;
+            reportTimer(timestamp, writer.getCorrectedSink(), labels, corrected_timer.getCorrectedAndReset(), timer.getUnit());
+        }
+    }
+
+    private void reportTimer(long timestamp, LineSink sink, Labels labels, Snapshot snapshot, TimeUnit unit) {
+
+        if (snapshot instanceof MomentsSnapshot) {
+            report(timestamp, sink, labels, "count,min,mean,max,standard_deviation,unit", "%d,%f,%f,%f,%f,%s", snapshot.getN(), snapshot.getMin(), snapshot.getMean(), snapshot.getMax(), snapshot.getStandardDeviation(), unit);
+            return;
+        }
+        report(timestamp, sink, labels, "count,min,mean,max,standard_deviation,0.1th_p,1th_p,2th_p,5th_p,25th_p,50th_p,75th_p,95th_p,98th_p,99th_p,99.9th_p,unit", "%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%s", snapshot.getN(), snapshot.getMin(), snapshot.getMean(), snapshot.getMax(), snapshot.getStandardDeviation(), snapshot.getPercentile(0.1), snapshot.getPercentile(1), snapshot.getPercentile(2), snapshot.getPercentile(5), snapshot.getPercentile(25), snapshot.getPercentile(50), snapshot.getPercentile(75), snapshot.getPercentile(95), snapshot.getPercentile(98), snapshot.getPercentile(99), snapshot.getPercentile(99.9), unit);
+    }
+
+    private void reportSampler(long timestamp, LineSink sink, Labels labels, Sampler sampler) {
+
+        final Snapshot snapshot = sampler.getAndReset();
+        if (snapshot instanceof MomentsSnapshot) {
+            report(timestamp, sink, labels, "count,min,mean,max,standard_deviation", "%d,%f,%f,%f,%f", snapshot.getN(), snapshot.getMin(), snapshot.getMean(), snapshot.getMax(), snapshot.getStandardDeviation());
+            return;
+        }
+        report(timestamp, sink, labels, "count,min,mean,max,standard_deviation,0.1th_p,1th_p,2th_p,5th_p,25th_p,50th_p,75th_p,95th_p,98th_p,99th_p,99.9th_p", "%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f", snapshot.getN(), snapshot.getMin(), snapshot.getMean(), snapshot.getMax(), snapshot.getStandardDeviation(), snapshot.getPercentile(0.1), snapshot.getPercentile(1), snapshot.getPercentile(2), snapshot.getPercentile(5), snapshot.getPercentile(25), snapshot.getPercentile(50), snapshot.getPercentile(75), snapshot.getPercentile(95), snapshot.getPercentile(98), snapshot.getPercentile(99), snapshot.getPercentile(99.9));
+    }
+
+    private void reportRate(long timestamp, LineSink sink, Labels labels, Rate rate) {
+
+        final Rate.Interval interval = rate.getIntervalAndReset();
+        report(timestamp, sink, labels, "count,rate,m1_rate,m5_rate,m15_rate,rate_unit", "%d,%f,%f,%f,%f,calls/%s", interval.getCount(), interval.getRate(rate.getUnit()), rate.getOneMinuteRate(), rate.getFiveMinuteRate(), rate.getFifteenMinuteRate(), rate.getUnit());
+    }
+
+    private void reportRollingRate(long timestamp, LineSink sink, Labels labels, RollingRate rate) {
+
+        final long window = rate.getLengthInSeconds();
+        report(timestamp, sink, labels, "count,mean_rate,peak_rate,rate_unit,window_seconds", "%d,%f,%f,calls/%s,%d", rate.getCount(window, TimeUnit.SECONDS), rate.getMeanRate(window, TimeUnit.SECONDS), rate.getPeakRate(window, TimeUnit.SECONDS), rate.getUnit(), window);
+    }
+
+    private void reportRollingCounter(long timestamp, LineSink sink, Labels labels, RollingCounter counter) {
+
+        final long window = counter.getLengthInSeconds();
+        report(timestamp, sink, labels, "sum,max_per_second,window_seconds", "%d,%d,%d", counter.getSum(), counter.getMaxPerSecond(window, TimeUnit.SECONDS), window);
+    }
+
+    private void reportCounter(long timestamp, LineSink sink, Labels labels, Counter counter) {
+
+        report(timestamp, sink, labels, "count", "%d", counter.get());
+    }
+
+    private void reportGauge(long timestamp, LineSink sink, Labels labels, Gauge<?> gauge) {
+
+        report(timestamp, sink, labels, "value", "%s", gauge.get());
+    }
+
+    private void report(long timestamp, LineSink sink, Labels labels, String header, String line, Object... values) {
+
+        sink.append(timestamp, labels, header, String.format(line, values));
+    }
+
+    private static String join(List<?> values) {
+
+        final StringBuilder joined = new StringBuilder();
+        for (Object value : values) {
+            joined.append(escape(String.valueOf(value))).append(',');
+        }
+        return joined.toString();
+    }
+
+    private static String key(List<String> names, List<?> values) {
+
+        final StringBuilder key = new StringBuilder("{");
+        for (int index = 0; index < names.size(); index++) {
+            if (index > 0) {
+                key.append(',');
             }
+            key.append(names.get(index)).append('=').append(values.get(index));
         }
+        return key.append('}').toString();
     }
 
-    private long getTimeStamp() {
+    private static String escape(String value) {
 
-        final long report_count = report_counter.getAndIncrement();
-        return count_as_timestamp ? report_count : System.nanoTime();
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) { return value; }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
-    private void reportTimer(long timestamp, String name, Timer timer) {
+    /** A destination of the lines of metrics. */
+    private interface LineSink {
 
-        final SynchronizedDescriptiveStatistics statistics = timer.getAndReset();
-        report(timestamp, name, "count,min,mean,max,standard_deviation,0.1th_p,1th_p,2th_p,5th_p,25th_p,50th_p,75th_p,95th_p,98th_p,99th_p,99.9th_p,unit", "%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%s", statistics.getN(), statistics.getMin(), statistics.getMean(), statistics.getMax(), statistics.getStandardDeviation(), statistics.getPercentile(0.1), statistics.getPercentile(1), statistics.getPercentile(2), statistics.getPercentile(5), statistics.getPercentile(25), statistics.getPercentile(50), statistics.getPercentile(75), statistics.getPercentile(95), statistics.getPercentile(98), statistics.getPercentile(99), statistics.getPercentile(99.9), timer.getUnit());
+        void append(long timestamp, Labels labels, String header, String line);
     }
 
-    private void reportSampler(long timestamp, String name, Sampler sampler) {
+    /** A CSV file that is kept open, along with whether its header is written and the lines that are pending to be written. */
+    private static final class CsvFile implements LineSink {
+
+        private static final String LINE_SEPARATOR = System.lineSeparator();
+        private final Path path;
+        private final StringBuilder pending_lines;
+        private FileChannel channel;
+        private boolean header_written;
+
+        private CsvFile(Path path) {
+
+            this.path = path;
+            pending_lines = new StringBuilder();
+        }
+
+        @Override
+        public void append(long timestamp, Labels labels, String header, String line) {
+
+            append("time," + labels.header + header, timestamp + "," + labels.values + line);
+        }
+
+        private synchronized void append(String header, String line) {
+
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    header_written = header_written || channel.size() > 0;
+                }
+            }
+            catch (IOException e) {
+                LOGGER.warn("Error opening {}", path, e);
+                return;
+            }
+            if (!header_written) {
+                pending_lines.append(header).append(LINE_SEPARATOR);
+                header_written = true;
+            }
+            pending_lines.append(line).append(LINE_SEPARATOR);
+        }
+
+        private synchronized void flush(boolean force) {
+
+            if (pending_lines.length() == 0) { return; }
 
-        final SynchronizedDescriptiveStatistics statistics = sampler.getAndReset();
-        report(timestamp, name, "count,min,mean,max,standard_deviation,0.1th_p,1th_p,2th_p,5th_p,25th_p,50th_p,75th_p,95th_p,98th_p,99th_p,99.9th_p", "%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f", statistics.getN(), statistics.getMin(), statistics.getMean(), statistics.getMax(), statistics.getStandardDeviation(), statistics.getPercentile(0.1), statistics.getPercentile(1), statistics.getPercentile(2), statistics.getPercentile(5), statistics.getPercentile(25), statistics.getPercentile(50), statistics.getPercentile(75), statistics.getPercentile(95), statistics.getPercentile(98), statistics.getPercentile(99), statistics.getPercentile(99.9));
+            final ByteBuffer bytes = StandardCharsets.UTF_8.encode(pending_lines.toString());
+            pending_lines.setLength(0);
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+            }
+            catch (IOException e) {
+                LOGGER.warn("Error writing to {}", path, e);
+            }
+        }
+
+        private synchronized void close() {
+
+            if (channel == null) { return; }
+
+            flush(false);
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                LOGGER.warn("Error closing {}", path, e);
+            }
+            finally {
+                channel = null;
+            }
+        }
     }
 
-    private void reportRate(long timestamp, String name, Rate rate) {
+    /** A row of a report in wide format, along with the header of its columns. */
+    private static final class WideRow {
+
+        private final StringBuilder header;
+        private final StringBuilder values;
+
+        private WideRow(long timestamp) {
 
-        report(timestamp, name, "count,rate,rate_unit", "%d,%f,calls/%s", rate.getCount(), rate.getRateAndReset(), rate.getUnit());
+            header = new StringBuilder("time");
+            values = new StringBuilder().append(timestamp);
+        }
+
+        private void add(String prefix, String header, String line) {
+
+            for (String column : header.split(",")) {
+                this.header.append(',').append(escape(prefix + '.' + column));
+            }
+            values.append(',').append(line);
+        }
+    }
+
+    /** The group of columns of a metric in a {@link WideRow}. */
+    private static final class WideColumns implements LineSink {
+
+        private final WideRow row;
+        private final String name;
+
+        private WideColumns(WideRow row, String name) {
+
+            this.row = row;
+            this.name = name;
+        }
+
+        @Override
+        public void append(long timestamp, Labels labels, String header, String line) {
+
+            row.add(name + labels.key, header, line);
+        }
     }
 
-    private void reportCounter(long timestamp, String name, Counter counter) {
+    /** The segments of a report in wide format, a new one of which is started whenever the header changes. */
+    private final class WideFile {
+
+        private final String name;
+        private int segment_index;
+        private String header;
+        private CsvFile segment;
+
+        private WideFile(String name) {
+
+            this.name = name;
+        }
+
+        private synchronized void append(WideRow row) {
+
+            final String header = row.header.toString();
+            if (!header.equals(this.header)) {
+                if (segment != null) {
+                    segment.close();
+                }
+                segment = new CsvFile(nextSegmentPath());
+                this.header = header;
+                LOGGER.debug("started wide CSV segment {}", segment.path);
+            }
+            segment.append(header, row.values.toString());
+        }
+
+        private synchronized void flush(boolean force) {
+
+            if (segment != null) {
+                segment.flush(force);
+            }
+        }
+
+        private synchronized void close() {
+
+            if (segment != null) {
+                segment.close();
+            }
+        }
 
-        report(timestamp, name, "count", "%d", counter.get());
+        private Path nextSegmentPath() {
+
+            Path path;
+            do {
+                path = reports_home.resolve(name + "." + segment_index++ + ".csv");
+            }
+            while (Files.exists(path));
+            return path;
+        }
     }
 
-    private void reportGauge(long timestamp, String name, Gauge<?> gauge) {
+    /** Writes a registered metric by visiting it, resolving its files once. */
+    private final class MetricWriter implements MetricVisitor {
+
+        private final String name;
+        private final Metric metric;
+        private final CsvFile file;
+        private volatile CsvFile corrected_file;
+        private long timestamp;
+        private Labels labels;
+        private WideRow row;
+        private boolean retired;
+
+        private MetricWriter(String name, Metric metric) {
+
+            this.name = name;
+            this.metric = metric;
+            file = new CsvFile(reports_home.resolve(name + ".csv"));
+        }
+
+        /**
+         * Writes the metric of this writer into its files, or into the given row in wide format.
+         *
+         * @param timestamp the timestamp of the report
+         * @param row the row to write into, or {@code null} to write into the files of this writer
+         */
+        private synchronized void write(long timestamp, WideRow row) {
+
+            if (retired) { return; }
+
+            this.timestamp = timestamp;
+            this.row = row;
+            labels = Labels.NONE;
+            metric.accept(this);
+            this.row = null;
+        }
+
+        @Override
+        public void visitCounter(Counter counter) {
+
+            reportCounter(timestamp, getSink(), labels, counter);
+        }
+
+        @Override
+        public void visitRate(Rate rate) {
+
+            reportRate(timestamp, getSink(), labels, rate);
+        }
+
+        @Override
+        public void visitSampler(Sampler sampler) {
 
-        report(timestamp, name, "value", "%s", gauge.get());
+            reportSampler(timestamp, getSink(), labels, sampler);
+        }
+
+        @Override
+        public void visitTimer(Timer timer) {
+
+            reportTimer(timestamp, this, labels, timer);
+        }
+
+        @Override
+        public void visitRollingCounter(RollingCounter counter) {
+
+            reportRollingCounter(timestamp, getSink(), labels, counter);
+        }
+
+        @Override
+        public void visitRollingRate(RollingRate rate) {
+
+            reportRollingRate(timestamp, getSink(), labels, rate);
+        }
+
+        @Override
+        public void visitGauge(Gauge<?> gauge) {
+
+            reportGauge(timestamp, getSink(), labels, gauge);
+        }
+
+        @Override
+        public void visitFamily(MetricFamily<?> family) {
+
+            final String label_header = join(family.getLabelNames());
+            for (MetricFamily.Child<?> child : family.getChildren()) {
+                labels = new Labels(label_header, join(child.getLabelValues()), key(family.getLabelNames(), child.getLabelValues()));
+                child.getMetric().accept(this);
+            }
+            labels = Labels.NONE;
+        }
+
+        private synchronized void flush(boolean force) {
+
+            file.flush(force);
+            if (corrected_file != null) {
+                corrected_file.flush(force);
+            }
+        }
+
+        private synchronized void close() {
+
+            file.close();
+            if (corrected_file != null) {
+                corrected_file.close();
+            }
+        }
+
+        /** Closes the files of this writer for good, once its metric is removed. */
+        private synchronized void retire() {
+
+            retired = true;
+            close();
+        }
+
+        private LineSink getSink() {
+
+            return row == null ? file : new WideColumns(row, name);
+        }
+
+        private LineSink getCorrectedSink() {
+
+            return row == null ? getCorrectedFile() : new WideColumns(row, name + ".corrected");
+        }
+
+        private CsvFile getCorrectedFile() {
+
+            if (corrected_file == null) {
+                corrected_file = new CsvFile(reports_home.resolve(name + ".corrected.csv"));
+            }
+            return corrected_file;
+        }
     }
 
-    private void report(long timestamp, String name, String header, String line, Object... values) {
+    /** Maintains the writers of metrics as they are registered and removed. */
+    private final class WriterMaintainer implements MetricRegistryListener {
+
+        @Override
+        public void onMetricAdded(String name, Metric metric) {
 
-        try {
+            synchronized (writers_by_name) {
+                final MetricWriter replaced = writers_by_name.put(name, new MetricWriter(name, metric));
+                publishWriters();
+                if (replaced != null) {
+                    replaced.retire();
+                }
+            }
+        }
 
-            final Path report_path = reports_home.resolve(name + ".csv");
-            final List<String> lines = new ArrayList<>();
+        @Override
+        public void onMetricRemoved(String name, Metric metric) {
 
-            if (Files.notExists(report_path)) {
-                lines.add("time," + header);
+            synchronized (writers_by_name) {
+                final MetricWriter writer = writers_by_name.get(name);
+                if (writer != null && writer.metric == metric) {
+                    writers_by_name.remove(name);
+                    publishWriters();
+                    writer.retire();
+                }
             }
+        }
 
-            lines.add(String.format(String.format("%d,%s", timestamp, line), values));
-            Files.write(report_path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        private void publishWriters() {
+
+            writers = writers_by_name.values().toArray(new MetricWriter[writers_by_name.size()]);
         }
-        catch (IOException e) {
-            LOGGER.warn("Error writing to {}", name, e);
+    }
+
+    /** The names and values of the labels of a family child, each followed by a separator, and the key that distinguishes the child in wide format; empty for metrics that are not in a family. */
+    private static final class Labels {
+
+        private static final Labels NONE = new Labels("", "", "");
+        private final String header;
+        private final String values;
+        private final String key;
+
+        private Labels(String header, String values, String key) {
+
+            this.header = header;
+            this.values = values;
+            this.key = key;
         }
     }
 }
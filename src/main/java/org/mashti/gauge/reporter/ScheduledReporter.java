@@ -60,7 +60,9 @@ public abstract class ScheduledReporter implements Reporter {
 
                     LOGGER.debug("reporter started for registry {}", registry.getName());
                     try {
+                        registry.collect();
                         report();
+                        registry.expireIdleMetrics();
                     }
                     catch (final Exception e) {
                         LOGGER.error("failure occurred while reporting", e);
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock of whole seconds that is advanced by a daemon thread once a second, so that structures that record per second read a volatile field rather than calling {@link System#nanoTime()} on every update.
+ * Seconds are counted from when this class is loaded, and so are never negative even when {@link System#nanoTime()} is.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public final class CoarseClock {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "coarse_clock");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static volatile long current_second;
+
+    static {
+        new Tick().run();
+    }
+
+    private CoarseClock() {
+
+    }
+
+    /**
+     * Gets the current second as of the last tick of this clock, which lags behind {@link #preciseSecond()} only for as long as the ticking thread takes to wake up at the start of a second.
+     *
+     * @return the current second since this class was loaded
+     */
+    public static long currentSecond() {
+
+        return current_second;
+    }
+
+    /**
+     * Gets the current second by reading {@link System#nanoTime()}.
+     *
+     * @return the current second since this class was loaded
+     */
+    public static long preciseSecond() {
+
+        return (System.nanoTime() - ORIGIN_NANOS) / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Gets the number of nanoseconds that have elapsed since the start of the current second by reading {@link System#nanoTime()}.
+     *
+     * @return the number of nanoseconds into the current second
+     */
+    public static long nanosIntoCurrentSecond() {
+
+        return (System.nanoTime() - ORIGIN_NANOS) % NANOS_PER_SECOND;
+    }
+
+    /** Advances the clock, and schedules itself for the start of the next second. */
+    private static final class Tick implements Runnable {
+
+        @Override
+        public void run() {
+
+            final long elapsed_nanos = System.nanoTime() - ORIGIN_NANOS;
+            current_second = elapsed_nanos / NANOS_PER_SECOND;
+            TICKER.schedule(this, NANOS_PER_SECOND - elapsed_nanos % NANOS_PER_SECOND, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent histogram of {@code double} values with log-linear buckets that preserve a given number of significant decimal digits, in the spirit of HdrHistogram.
+ * Values below the lowest discernible value count as zero, values at or above the highest trackable value count in the highest bucket, and {@link Double#NaN NaN} values are ignored.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class LogLinearHistogram {
+
+    private static final int MANTISSA_BITS = 52;
+    private static final int EXPONENT_BIAS = 1023;
+    private static final int MAX_SIGNIFICANT_DIGITS = 5;
+    private final int significant_digits;
+    private final int sub_bucket_bits;
+    private final int sub_bucket_shift;
+    private final long first_bucket_key;
+    private final double lowest_discernible_value;
+    private final double highest_trackable_value;
+    private final double upper_bound;
+    private final int bucket_count;
+    private final AtomicLong zero_count;
+    private final AtomicReferenceArray<AtomicLongArray> octaves;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    /**
+     * Constructs a new histogram.
+     *
+     * @param significant_digits the number of significant decimal digits to preserve, within range {@code 1 <= significant_digits <= 5}
+     * @param lowest_discernible_value the smallest positive value that is distinguishable from zero
+     * @param highest_trackable_value the largest value that is tracked with the requested precision
+     */
+    public LogLinearHistogram(int significant_digits, double lowest_discernible_value, double highest_trackable_value) {
+
+        if (significant_digits < 1 || significant_digits > MAX_SIGNIFICANT_DIGITS) { throw new IllegalArgumentException("significant digits must be between 1 and " + MAX_SIGNIFICANT_DIGITS); }
+        if (!(lowest_discernible_value >= Double.MIN_NORMAL)) { throw new IllegalArgumentException("lowest discernible value must be a positive normal number"); }
+        if (!(highest_trackable_value >= lowest_discernible_value) || Double.isInfinite(highest_trackable_value)) { throw new IllegalArgumentException("highest trackable value must be finite and no less than the lowest discernible value"); }
+
+        this.significant_digits = significant_digits;
+        this.lowest_discernible_value = lowest_discernible_value;
+        this.highest_trackable_value = highest_trackable_value;
+
+        sub_bucket_bits = (int) Math.ceil(significant_digits * Math.log(10) / Math.log(2));
+        sub_bucket_shift = MANTISSA_BITS - sub_bucket_bits;
+
+        final int lowest_exponent = Math.getExponent(lowest_discernible_value);
+        final int highest_exponent = Math.getExponent(highest_trackable_value);
+        first_bucket_key = (long) (lowest_exponent + EXPONENT_BIAS) << sub_bucket_bits;
+        upper_bound = Math.scalb(1.0, highest_exponent + 1);
+        final int octave_count = highest_exponent - lowest_exponent + 1;
+        bucket_count = 1 + (octave_count << sub_bucket_bits);
+        zero_count = new AtomicLong();
+        octaves = new AtomicReferenceArray<>(octave_count);
+        min = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+        max = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value to record
+     */
+    public void record(double value) {
+
+        if (Double.isNaN(value)) { return; }
+
+        add(indexOf(value), 1);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Adds the counts of the given histogram to this histogram.
+     *
+     * @param other the histogram to add, which must have the same configuration as this histogram
+     * @throws IllegalArgumentException if the given histogram is configured differently
+     */
+    public void add(LogLinearHistogram other) {
+
+        if (!hasSameConfiguration(other)) { throw new IllegalArgumentException("histograms must have the same configuration"); }
+
+        final long other_zero_count = other.zero_count.get();
+        if (other_zero_count != 0) {
+            zero_count.addAndGet(other_zero_count);
+        }
+        for (int octave = 0; octave < octaves.length(); octave++) {
+            final AtomicLongArray other_counts = other.octaves.get(octave);
+            if (other_counts != null) {
+                for (int sub_bucket = 0; sub_bucket < other_counts.length(); sub_bucket++) {
+                    final long count = other_counts.get(sub_bucket);
+                    if (count != 0) {
+                        getOrAllocateOctave(octave).addAndGet(sub_bucket, count);
+                    }
+                }
+            }
+        }
+        updateMin(other.getMin());
+        updateMax(other.getMax());
+    }
+
+    /**
+     * Checks whether the given histogram has the same significant digits and range as this histogram.
+     *
+     * @param other the histogram to check
+     * @return whether the given histogram has the same configuration as this histogram
+     */
+    public boolean hasSameConfiguration(LogLinearHistogram other) {
+
+        return significant_digits == other.significant_digits && lowest_discernible_value == other.lowest_discernible_value && highest_trackable_value == other.highest_trackable_value;
+    }
+
+    /**
+     * Resets this histogram, keeping the sub-buckets that are already allocated. Values that are recorded concurrently with the reset may or may not be retained.
+     */
+    public void reset() {
+
+        zero_count.set(0);
+        for (int octave = 0; octave < octaves.length(); octave++) {
+            final AtomicLongArray counts = octaves.get(octave);
+            if (counts != null) {
+                for (int sub_bucket = 0; sub_bucket < counts.length(); sub_bucket++) {
+                    counts.set(sub_bucket, 0);
+                }
+            }
+        }
+        min.set(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+        max.set(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * Gets the number of buckets in this histogram.
+     *
+     * @return the number of buckets in this histogram
+     */
+    public int getBucketCount() {
+
+        return bucket_count;
+    }
+
+    /**
+     * Gets the number of values that are counted in the bucket at the given index.
+     *
+     * @param index the index of a bucket
+     * @return the number of values that are counted in the bucket at the given index
+     */
+    public long getCount(int index) {
+
+        if (index == 0) { return zero_count.get(); }
+
+        final AtomicLongArray counts = octaves.get((index - 1) >>> sub_bucket_bits);
+        return counts == null ? 0 : counts.get((index - 1) & ((1 << sub_bucket_bits) - 1));
+    }
+
+    /**
+     * Gets the value that is representative of the values counted in the bucket at the given index, which is the middle of the range covered by the bucket.
+     *
+     * @param index the index of a bucket
+     * @return the value that is representative of the values counted in the bucket at the given index
+     */
+    public double getEquivalentValue(int index) {
+
+        if (index == 0) { return 0; }
+        final double lower_bound = getLowerBound(index);
+        final double upper_bound = index == bucket_count - 1 ? this.upper_bound : getLowerBound(index + 1);
+        return (lower_bound + upper_bound) / 2;
+    }
+
+    /**
+     * Gets the smallest recorded value, or {@link Double#POSITIVE_INFINITY} if no value is recorded.
+     *
+     * @return the smallest recorded value
+     */
+    public double getMin() {
+
+        return Double.longBitsToDouble(min.get());
+    }
+
+    /**
+     * Gets the largest recorded value, or {@link Double#NEGATIVE_INFINITY} if no value is recorded.
+     *
+     * @return the largest recorded value
+     */
+    public double getMax() {
+
+        return Double.longBitsToDouble(max.get());
+    }
+
+    public int getSignificantDigits() {
+
+        return significant_digits;
+    }
+
+    public double getLowestDiscernibleValue() {
+
+        return lowest_discernible_value;
+    }
+
+    public double getHighestTrackableValue() {
+
+        return highest_trackable_value;
+    }
+
+    int indexOf(double value) {
+
+        if (!(value >= lowest_discernible_value)) { return 0; }
+        if (value >= upper_bound) { return bucket_count - 1; }
+        return 1 + (int) ((Double.doubleToRawLongBits(value) >>> sub_bucket_shift) - first_bucket_key);
+    }
+
+    private void add(int index, long count) {
+
+        if (index == 0) {
+            zero_count.addAndGet(count);
+        }
+        else {
+            getOrAllocateOctave((index - 1) >>> sub_bucket_bits).addAndGet((index - 1) & ((1 << sub_bucket_bits) - 1), count);
+        }
+    }
+
+    private AtomicLongArray getOrAllocateOctave(int octave) {
+
+        final AtomicLongArray counts = octaves.get(octave);
+        if (counts != null) { return counts; }
+
+        octaves.compareAndSet(octave, null, new AtomicLongArray(1 << sub_bucket_bits));
+        return octaves.get(octave);
+    }
+
+    private double getLowerBound(int index) {
+
+        return Double.longBitsToDouble((first_bucket_key + index - 1) << sub_bucket_shift);
+    }
+
+    private void updateMin(double value) {
+
+        long current;
+        while (value < Double.longBitsToDouble(current = min.get())) {
+            if (min.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                break;
+            }
+        }
+    }
+
+    private void updateMax(double value) {
+
+        long current;
+        while (value > Double.longBitsToDouble(current = max.get())) {
+            if (max.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest, as described by Ted Dunning and Otmar Ertl, that estimates the quantiles of a stream of values in space proportional to the compression.
+ * This class is not thread-safe.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class TDigest {
+
+    private final double compression;
+    private final double[] buffer;
+    private double[] means;
+    private double[] weights;
+    private double[] merged_means;
+    private double[] merged_weights;
+    private int buffered;
+    private int centroid_count;
+    private double centroid_weight;
+    private long count;
+    private double mean;
+    private double squared_deviations;
+    private double min;
+    private double max;
+
+    /**
+     * Constructs a new empty digest.
+     *
+     * @param compression the compression factor, which bounds the number of centroids
+     */
+    public TDigest(double compression) {
+
+        if (!(compression >= 1) || Double.isInfinite(compression)) { throw new IllegalArgumentException("compression must be finite and at least 1"); }
+
+        this.compression = compression;
+        final int capacity = 2 * (int) Math.ceil(compression) + 8;
+        buffer = new double[capacity];
+        means = new double[capacity];
+        weights = new double[capacity];
+        merged_means = new double[capacity];
+        merged_weights = new double[capacity];
+        reset();
+    }
+
+    /**
+     * Adds the given value to this digest.
+     *
+     * @param value the value to add
+     */
+    public void add(double value) {
+
+        if (Double.isNaN(value)) { return; }
+        if (buffered == buffer.length) {
+            flush();
+        }
+
+        buffer[buffered++] = value;
+        count++;
+        final double delta = value - mean;
+        mean += delta / count;
+        squared_deviations += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all the values summarised by the given digest to this digest.
+     *
+     * @param other the digest to add
+     */
+    public void add(TDigest other) {
+
+        if (other.count == 0) { return; }
+
+        other.flush();
+        flush();
+        mergeSorted(other.means, other.weights, other.centroid_count);
+
+        final long total = count + other.count;
+        final double delta = other.mean - mean;
+        squared_deviations += other.squared_deviations + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** Merges any buffered values into the centroids of this digest. */
+    public void flush() {
+
+        if (buffered == 0) { return; }
+
+        Arrays.sort(buffer, 0, buffered);
+        final int merging = buffered;
+        buffered = 0;
+        mergeSorted(buffer, null, merging);
+    }
+
+    /** Removes all values from this digest. */
+    public void reset() {
+
+        buffered = 0;
+        centroid_count = 0;
+        centroid_weight = 0;
+        count = 0;
+        mean = 0;
+        squared_deviations = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Creates an independent copy of this digest.
+     *
+     * @return an independent copy of this digest
+     */
+    public TDigest copy() {
+
+        final TDigest copy = new TDigest(compression);
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Estimates the value at the given quantile.
+     *
+     * @param quantile the quantile within range {@code 0 <= quantile <= 1}
+     * @return the estimated value at the given quantile, or {@link Double#NaN} if this digest is empty
+     */
+    public double quantile(double quantile) {
+
+        if (count == 0) { return Double.NaN; }
+        flush();
+
+        final double rank = quantile * centroid_weight;
+        final double first_center = weights[0] / 2;
+        if (rank <= first_center) {
+            return interpolate(min, means[0], rank / first_center);
+        }
+
+        final int last = centroid_count - 1;
+        final double last_center = centroid_weight - weights[last] / 2;
+        if (rank >= last_center) {
+            return interpolate(means[last], max, (rank - last_center) / (weights[last] / 2));
+        }
+
+        double center = first_center;
+        for (int i = 0; i < last; i++) {
+            final double next_center = center + (weights[i] + weights[i + 1]) / 2;
+            if (rank < next_center) {
+                return interpolate(means[i], means[i + 1], (rank - center) / (next_center - center));
+            }
+            center = next_center;
+        }
+        return max;
+    }
+
+    public double getCompression() {
+
+        return compression;
+    }
+
+    public long getCount() {
+
+        return count;
+    }
+
+    public double getMin() {
+
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public double getMean() {
+
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Gets the sample variance of the values in this digest.
+     *
+     * @return the sample variance of the values in this digest, or {@link Double#NaN} if this digest is empty
+     */
+    public double getVariance() {
+
+        if (count == 0) { return Double.NaN; }
+        return count == 1 ? 0 : squared_deviations / (count - 1);
+    }
+
+    /**
+     * Gets the number of centroids in this digest, excluding buffered values.
+     *
+     * @return the number of centroids in this digest
+     */
+    public int getCentroidCount() {
+
+        return centroid_count;
+    }
+
+    private void mergeSorted(double[] incoming_means, double[] incoming_weights, int incoming_count) {
+
+        double incoming_weight = 0;
+        for (int j = 0; j < incoming_count; j++) {
+            incoming_weight += incoming_weights == null ? 1 : incoming_weights[j];
+        }
+
+        final double total_weight = centroid_weight + incoming_weight;
+        final int capacity = merged_means.length;
+        int i = 0;
+        int j = 0;
+        int merged = 0;
+        double weight_so_far = 0;
+        final double normalizer = compression / (4 * Math.log(Math.max(total_weight / compression, 1)) + 24);
+        double limit = total_weight * limit(0, normalizer);
+        double current_mean = 0;
+        double current_weight = 0;
+
+        while (i < centroid_count || j < incoming_count) {
+            final double next_mean;
+            final double next_weight;
+            if (i < centroid_count && (j == incoming_count || means[i] <= incoming_means[j])) {
+                next_mean = means[i];
+                next_weight = weights[i++];
+            }
+            else {
+                next_mean = incoming_means[j];
+                next_weight = incoming_weights == null ? 1 : incoming_weights[j];
+                j++;
+            }
+
+            if (current_weight == 0) {
+                current_mean = next_mean;
+                current_weight = next_weight;
+            }
+            else if (weight_so_far + current_weight + next_weight <= limit || merged == capacity - 1) {
+                current_weight += next_weight;
+                current_mean += (next_mean - current_mean) * next_weight / current_weight;
+            }
+            else {
+                merged_means[merged] = current_mean;
+                merged_weights[merged++] = current_weight;
+                weight_so_far += current_weight;
+                limit = total_weight * limit(weight_so_far / total_weight, normalizer);
+                current_mean = next_mean;
+                current_weight = next_weight;
+            }
+        }
+
+        if (current_weight > 0) {
+            merged_means[merged] = current_mean;
+            merged_weights[merged++] = current_weight;
+        }
+
+        final double[] previous_means = means;
+        final double[] previous_weights = weights;
+        means = merged_means;
+        weights = merged_weights;
+        merged_means = previous_means;
+        merged_weights = previous_weights;
+        centroid_count = merged;
+        centroid_weight = total_weight;
+    }
+
+    /** Gets the largest quantile that a centroid starting at the given quantile may span, using the logarithmic scale function. */
+    private static double limit(double quantile, double normalizer) {
+
+        final double k = normalizer * Math.log(quantile / (1 - quantile)) + 1;
+        return 1 / (1 + Math.exp(-k / normalizer));
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+
+        return from + (to - from) * fraction;
+    }
+}
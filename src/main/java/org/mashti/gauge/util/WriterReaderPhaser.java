@@ -0,0 +1,125 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A phaser that lets a reader flip the data structures that wait-free writers update between an active and an inactive phase, as described by Gil Tene for HdrHistogram.
+ * Once the reader has swapped them under the {@link #readerLock() reader lock}, {@link #flipPhase()} returns when no writer can still be updating the previously active data structure.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class WriterReaderPhaser {
+
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> START_EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "start_epoch");
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> EVEN_END_EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "even_end_epoch");
+    private static final AtomicLongFieldUpdater<WriterReaderPhaser> ODD_END_EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "odd_end_epoch");
+    private final ReentrantLock reader_lock = new ReentrantLock();
+    private volatile long start_epoch = 0;
+    private volatile long even_end_epoch = 0;
+    private volatile long odd_end_epoch = Long.MIN_VALUE;
+
+    /**
+     * Enters a writer critical section.
+     *
+     * @return the value to be passed to {@link #writerCriticalSectionExit(long)} when exiting the critical section
+     */
+    public long writerCriticalSectionEnter() {
+
+        return START_EPOCH_UPDATER.getAndIncrement(this);
+    }
+
+    /**
+     * Exits a writer critical section.
+     *
+     * @param critical_value_at_enter the value returned by the matching call to {@link #writerCriticalSectionEnter()}
+     */
+    public void writerCriticalSectionExit(long critical_value_at_enter) {
+
+        if (critical_value_at_enter < 0) {
+            ODD_END_EPOCH_UPDATER.getAndIncrement(this);
+        }
+        else {
+            EVEN_END_EPOCH_UPDATER.getAndIncrement(this);
+        }
+    }
+
+    /** Acquires the reader lock, which excludes other readers but never blocks writers. */
+    public void readerLock() {
+
+        reader_lock.lock();
+    }
+
+    /** Releases the reader lock. */
+    public void readerUnlock() {
+
+        reader_lock.unlock();
+    }
+
+    /**
+     * Flips the phase and waits until all writers that entered their critical section in the previous phase have exited, yielding while waiting.
+     *
+     * @throws IllegalStateException if the reader lock is not held by the current thread
+     */
+    public void flipPhase() {
+
+        flipPhase(0);
+    }
+
+    /**
+     * Flips the phase and waits until all writers that entered their critical section in the previous phase have exited.
+     *
+     * @param yield_time_nanos the time to park between checks, or {@code 0} to yield instead
+     * @throws IllegalStateException if the reader lock is not held by the current thread
+     */
+    public void flipPhase(long yield_time_nanos) {
+
+        if (!reader_lock.isHeldByCurrentThread()) { throw new IllegalStateException("reader lock must be held to flip phase"); }
+
+        final boolean next_phase_is_even = start_epoch < 0;
+        final long initial_start_value = next_phase_is_even ? 0 : Long.MIN_VALUE;
+        if (next_phase_is_even) {
+            even_end_epoch = initial_start_value;
+        }
+        else {
+            odd_end_epoch = initial_start_value;
+        }
+
+        final long start_value_at_flip = START_EPOCH_UPDATER.getAndSet(this, initial_start_value);
+        while ((next_phase_is_even ? odd_end_epoch : even_end_epoch) != start_value_at_flip) {
+            if (yield_time_nanos == 0) {
+                Thread.yield();
+            }
+            else {
+                LockSupport.parkNanos(yield_time_nanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class CompositeMetricRegistryTest {
+
+    private CompositeMetricRegistry composite;
+    private MetricRegistry first;
+    private MetricRegistry second;
+
+    @Before
+    public void setUp() throws Exception {
+
+        composite = new CompositeMetricRegistry("composite");
+        first = new MetricRegistry("first");
+        second = new MetricRegistry("second");
+        composite.addRegistry(first);
+        composite.addRegistry(second);
+    }
+
+    @Test
+    public void testCollectMergesSameNamedMetrics() throws Exception {
+
+        first.counter("requests").add(3);
+        second.counter("requests").add(4);
+        first.rate("events").mark(5);
+        second.rate("events").mark(6);
+        for (int i = 1; i <= 100; i++) {
+            first.sampler("latency").update(i);
+            second.sampler("latency").update(100 + i);
+        }
+        first.timer("duration").update(1, TimeUnit.SECONDS);
+        second.register("duration", new Timer(TimeUnit.MILLISECONDS));
+        ((Timer) second.get("duration")).update(3000, TimeUnit.MILLISECONDS);
+
+        composite.collect();
+
+        assertEquals(7, ((Counter) composite.get("requests")).get());
+        assertEquals(3, ((Counter) composite.get("first.requests")).get());
+        assertEquals(11, ((Rate) composite.get("events")).getIntervalAndReset().getCount());
+        assertEquals(6, ((Rate) composite.get("second.events")).getIntervalAndReset().getCount());
+
+        final Snapshot latency = ((Sampler) composite.get("latency")).getAndReset();
+        assertEquals(200, latency.getN());
+        assertEquals(1, latency.getMin(), 0);
+        assertEquals(200, latency.getMax(), 0);
+        assertEquals(100.5, latency.getMean(), 1e-9);
+        assertEquals(100, latency.getPercentile(50), 2);
+        assertEquals(100, ((Sampler) composite.get("second.latency")).getAndReset().getN());
+
+        final Snapshot duration = ((Timer) composite.get("duration")).getAndReset();
+        assertEquals(2, duration.getN());
+        assertEquals(TimeUnit.SECONDS.toNanos(2), duration.getMean(), 1e-3);
+
+        second.remove("requests");
+        composite.collect();
+        assertEquals(3, ((Counter) composite.get("requests")).get());
+        assertNull(composite.get("second.requests"));
+        assertEquals(0, ((Sampler) composite.get("latency")).getAndReset().getN());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollectedTimerCannotBeUpdated() throws Exception {
+
+        first.timer("duration").update(1, TimeUnit.SECONDS);
+        composite.collect();
+
+        composite.timer("duration").update(1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollectedSamplerCannotBeUpdated() throws Exception {
+
+        first.sampler("latency").update(1);
+        composite.collect();
+
+        composite.sampler("first.latency").update(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCollectedSamplerRejectsUpdatesThroughTheRegistry() throws Exception {
+
+        first.sampler("latency").update(1);
+        composite.collect();
+
+        ((Sampler) composite.get("latency")).update(1);
+    }
+
+    @Test
+    public void testMetricsOfTheCompositeItselfCanBeUpdated() throws Exception {
+
+        first.sampler("latency").update(1);
+        composite.collect();
+
+        composite.timer("collection").update(1, TimeUnit.SECONDS);
+        composite.sampler("backlog").update(42);
+        assertEquals(1, composite.timer("collection").getAndReset().getN());
+        assertEquals(42, composite.sampler("backlog").getAndReset().getMax(), 0);
+    }
+
+    @Test
+    public void testSkewedTailOfHistogramsIsMergedExactly() throws Exception {
+
+        first.register("latency", new Sampler(new HistogramReservoir()));
+        second.register("latency", new Sampler(new HistogramReservoir()));
+        recordSkewedTail();
+
+        composite.collect();
+
+        final Snapshot latency = ((Sampler) composite.get("latency")).getAndReset();
+        assertEquals(200000, latency.getN());
+        assertEquals(10, latency.getPercentile(99.8), 10 * 0.01);
+        assertEquals(500, latency.getPercentile(99.9), 500 * 0.01);
+        assertEquals(500, latency.getPercentile(99.95), 500 * 0.01);
+        assertEquals(1000, latency.getPercentile(99.96), 1000 * 0.01);
+    }
+
+    @Test
+    public void testSkewedTailOfDigestsIsMergedExactly() throws Exception {
+
+        first.register("latency", new Sampler(new DigestReservoir()));
+        second.register("latency", new Sampler(new DigestReservoir()));
+        recordSkewedTail();
+
+        composite.collect();
+
+        final Snapshot latency = ((Sampler) composite.get("latency")).getAndReset();
+        assertEquals(200000, latency.getN());
+        assertEquals(500, latency.getPercentile(99.9), 500 * 0.05);
+    }
+
+    @Test
+    public void testMomentsAreMergedIntoMoments() throws Exception {
+
+        first.register("latency", new Sampler(new MomentsReservoir()));
+        second.register("latency", new Sampler(new MomentsReservoir()));
+        ((Sampler) first.get("latency")).update(1);
+        ((Sampler) second.get("latency")).update(3);
+
+        composite.collect();
+
+        final Snapshot latency = ((Sampler) composite.get("latency")).getAndReset();
+        assertTrue(latency instanceof MomentsSnapshot);
+        assertEquals(2, latency.getN());
+        assertEquals(1, latency.getMin(), 0);
+        assertEquals(2, latency.getMean(), 0);
+        assertEquals(3, latency.getMax(), 0);
+        assertEquals(Math.sqrt(2), latency.getStandardDeviation(), 1e-9);
+    }
+
+    private void recordSkewedTail() {
+
+        for (MetricRegistry registry : new MetricRegistry[]{first, second}) {
+            final Sampler sampler = (Sampler) registry.get("latency");
+            for (int i = 0; i < 99800; i++) {
+                sampler.update(10);
+            }
+            for (int i = 0; i < 150; i++) {
+                sampler.update(500);
+            }
+            for (int i = 0; i < 50; i++) {
+                sampler.update(1000);
+            }
+        }
+    }
+}
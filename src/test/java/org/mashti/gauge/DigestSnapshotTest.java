@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Random;
+import org.junit.Test;
+import org.mashti.gauge.util.TDigest;
+
+import static org.junit.Assert.assertEquals;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class DigestSnapshotTest {
+
+    @Test
+    public void testMergeIsAssociative() throws Exception {
+
+        final Random random = new Random(42);
+        final TDigest[] digests = new TDigest[3];
+        final TDigest union = new TDigest(100);
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = new TDigest(100);
+            for (int j = 0; j < 100000; j++) {
+                final double sample = i * 2 + random.nextGaussian();
+                digests[i].add(sample);
+                union.add(sample);
+            }
+        }
+
+        final DigestSnapshot first = new DigestSnapshot(digests[0]);
+        final DigestSnapshot second = new DigestSnapshot(digests[1]);
+        final DigestSnapshot third = new DigestSnapshot(digests[2]);
+        final DigestSnapshot left = first.merge(second).merge(third);
+        final DigestSnapshot right = first.merge(second.merge(third));
+        final DigestSnapshot expected = new DigestSnapshot(union);
+
+        assertEquals(expected.getN(), left.getN());
+        assertEquals(expected.getN(), right.getN());
+        assertEquals(expected.getMean(), left.getMean(), 1e-9);
+        assertEquals(expected.getMean(), right.getMean(), 1e-9);
+        assertEquals(expected.getStandardDeviation(), left.getStandardDeviation(), 1e-9);
+        for (double percentile : new double[] {0.1, 1, 25, 50, 75, 99, 99.9}) {
+            assertEquals(expected.getPercentile(percentile), left.getPercentile(percentile), 0.05);
+            assertEquals(left.getPercentile(percentile), right.getPercentile(percentile), 0.05);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class ExponentiallyDecayingReservoirTest {
+
+    private ExponentiallyDecayingReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+
+        reservoir = new ExponentiallyDecayingReservoir(10, ExponentiallyDecayingReservoir.DEFAULT_ALPHA);
+    }
+
+    @Test
+    public void testCountIsTheNumberOfUpdates() throws Exception {
+
+        for (int i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+
+        assertEquals(1000, reservoir.get().getN());
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(1000, snapshot.getN());
+        assertFalse(Double.isNaN(snapshot.getPercentile(50)));
+
+        reservoir.update(1);
+        final Snapshot after_reset = reservoir.getAndReset();
+        assertEquals(1, after_reset.getN());
+        assertFalse(Double.isNaN(after_reset.getPercentile(50)));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class ExponentiallyWeightedMovingAverageTest {
+
+    private static final long TICKS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1) / ExponentiallyWeightedMovingAverage.TICK_INTERVAL_NANOS;
+    private static final double DELTA = 1e-9;
+    private ExponentiallyWeightedMovingAverage m1;
+    private ExponentiallyWeightedMovingAverage m5;
+    private ExponentiallyWeightedMovingAverage m15;
+
+    @Before
+    public void setUp() throws Exception {
+
+        m1 = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.ONE_MINUTE_ALPHA);
+        m5 = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.FIVE_MINUTES_ALPHA);
+        m15 = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.FIFTEEN_MINUTES_ALPHA);
+    }
+
+    @Test
+    public void testConstantRateReadEveryMinute() throws Exception {
+
+        for (int minute = 0; minute < 20; minute++) {
+            tickOneMinute(6000);
+            assertRates(100, 100, 100);
+        }
+    }
+
+    @Test
+    public void testStepChangeReadEveryMinute() throws Exception {
+
+        tickOneMinute(0);
+        assertRates(0, 0, 0);
+
+        tickOneMinute(6000);
+        assertRates(100 * (1 - Math.exp(-1)), 100 * (1 - Math.exp(-1.0 / 5)), 100 * (1 - Math.exp(-1.0 / 15)));
+
+        for (int minute = 0; minute < 4; minute++) {
+            tickOneMinute(6000);
+        }
+        assertRates(100 * (1 - Math.exp(-5)), 100 * (1 - Math.exp(-1)), 100 * (1 - Math.exp(-5.0 / 15)));
+    }
+
+    @Test
+    public void testCatchUpTickIsEquivalentToEvenTicks() throws Exception {
+
+        final ExponentiallyWeightedMovingAverage even = new ExponentiallyWeightedMovingAverage(ExponentiallyWeightedMovingAverage.ONE_MINUTE_ALPHA);
+        m1.tick(500);
+        even.tick(500);
+
+        m1.tick(1200, TICKS_PER_MINUTE);
+        for (int tick = 0; tick < TICKS_PER_MINUTE; tick++) {
+            even.tick(1200 / TICKS_PER_MINUTE);
+        }
+
+        assertEquals(even.getRate(TimeUnit.SECONDS), m1.getRate(TimeUnit.SECONDS), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTickCountMustBePositive() throws Exception {
+
+        m1.tick(1, 0);
+    }
+
+    private void tickOneMinute(long count) {
+
+        m1.tick(count, TICKS_PER_MINUTE);
+        m5.tick(count, TICKS_PER_MINUTE);
+        m15.tick(count, TICKS_PER_MINUTE);
+    }
+
+    private void assertRates(double expected_m1, double expected_m5, double expected_m15) {
+
+        assertEquals(expected_m1, m1.getRate(TimeUnit.SECONDS), DELTA);
+        assertEquals(expected_m5, m5.getRate(TimeUnit.SECONDS), DELTA);
+        assertEquals(expected_m15, m15.getRate(TimeUnit.SECONDS), DELTA);
+    }
+}
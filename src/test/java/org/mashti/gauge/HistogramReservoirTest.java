@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class HistogramReservoirTest {
+
+    private static final int SAMPLE_COUNT = 100000;
+    private HistogramReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+
+        reservoir = new HistogramReservoir(2);
+    }
+
+    @Test
+    public void testPercentilesArePreservedToSignificantDigits() throws Exception {
+
+        for (int sample = 1; sample <= SAMPLE_COUNT; sample++) {
+            reservoir.update(sample);
+        }
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(SAMPLE_COUNT, snapshot.getN());
+        assertEquals(1, snapshot.getMin(), 0);
+        assertEquals(SAMPLE_COUNT, snapshot.getMax(), 0);
+        assertEquals(SAMPLE_COUNT / 2.0, snapshot.getMean(), SAMPLE_COUNT * 0.01);
+        for (double percentile : new double[]{0.1, 1, 25, 50, 75, 99, 99.9}) {
+            final double expected = percentile / 100 * SAMPLE_COUNT;
+            assertEquals(expected, snapshot.getPercentile(percentile), expected * 0.01);
+        }
+        assertEquals(SAMPLE_COUNT, snapshot.getPercentile(100), 0);
+    }
+
+    @Test
+    public void testGetAndResetStartsNewInterval() throws Exception {
+
+        reservoir.update(42);
+        assertEquals(1, reservoir.getAndReset().getN());
+
+        final Snapshot empty = reservoir.getAndReset();
+        assertEquals(0, empty.getN());
+        assertTrue(Double.isNaN(empty.getMean()));
+        assertTrue(Double.isNaN(empty.getPercentile(50)));
+    }
+
+    @Test
+    public void testOutOfRangeSamplesAreCounted() throws Exception {
+
+        reservoir.update(-1);
+        reservoir.update(0);
+        reservoir.update(Double.NaN);
+        reservoir.update(HistogramReservoir.DEFAULT_HIGHEST_TRACKABLE_VALUE * 10);
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(3, snapshot.getN());
+        assertEquals(-1, snapshot.getMin(), 0);
+        assertEquals(HistogramReservoir.DEFAULT_HIGHEST_TRACKABLE_VALUE * 10, snapshot.getMax(), 0);
+    }
+
+    @Test
+    public void testSnapshotsWithSameBucketsMergeExactly() throws Exception {
+
+        for (int sample = 1; sample <= SAMPLE_COUNT / 2; sample++) {
+            reservoir.update(sample);
+        }
+        final HistogramSnapshot lower = (HistogramSnapshot) reservoir.getAndReset();
+        for (int sample = SAMPLE_COUNT / 2 + 1; sample <= SAMPLE_COUNT; sample++) {
+            reservoir.update(sample);
+        }
+        final HistogramSnapshot upper = (HistogramSnapshot) reservoir.getAndReset();
+        for (int sample = 1; sample <= SAMPLE_COUNT; sample++) {
+            reservoir.update(sample);
+        }
+        final Snapshot expected = reservoir.getAndReset();
+
+        final Snapshot merged = upper.merge(lower);
+        assertEquals(expected.getN(), merged.getN());
+        assertEquals(expected.getMin(), merged.getMin(), 0);
+        assertEquals(expected.getMax(), merged.getMax(), 0);
+        assertEquals(expected.getMean(), merged.getMean(), 1e-9);
+        for (double percentile : new double[]{0.1, 1, 25, 50, 75, 99, 99.9, 100}) {
+            assertEquals(expected.getPercentile(percentile), merged.getPercentile(percentile), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotsWithDifferentBucketsCannotBeMerged() throws Exception {
+
+        reservoir.update(1);
+        final HistogramSnapshot snapshot = (HistogramSnapshot) reservoir.getAndReset();
+        final HistogramReservoir other = new HistogramReservoir(3);
+        other.update(1);
+
+        snapshot.merge((HistogramSnapshot) other.getAndReset());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+
+        final int thread_count = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[thread_count];
+        for (int i = 0; i < thread_count; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int sample = 1; sample <= SAMPLE_COUNT; sample++) {
+                        reservoir.update(sample);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(SAMPLE_COUNT * thread_count, reservoir.getAndReset().getN());
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class IntervalCorrectedTimerTest {
+
+    private static final long EXPECTED_INTERVAL_MILLIS = 10;
+    private IntervalCorrectedTimer timer;
+
+    @Before
+    public void setUp() throws Exception {
+
+        timer = new IntervalCorrectedTimer(TimeUnit.MILLISECONDS, new SlidingWindowReservoir(100), new SlidingWindowReservoir(100), EXPECTED_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testStallIsBackFilled() throws Exception {
+
+        final int k = 5;
+        timer.update(k * EXPECTED_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        final Snapshot raw = timer.getAndReset();
+        assertEquals(1, raw.getN());
+        assertEquals(50, raw.getMax(), 0);
+
+        final Snapshot corrected = timer.getCorrectedAndReset();
+        assertEquals(k, corrected.getN());
+        assertEquals(10, corrected.getMin(), 0);
+        assertEquals(30, corrected.getMean(), 0);
+        assertEquals(50, corrected.getMax(), 0);
+        assertEquals(Math.sqrt(250), corrected.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testPartialIntervalIsBackFilledDownToTheInterval() throws Exception {
+
+        timer.update(TimeUnit.MICROSECONDS.toNanos(35000), TimeUnit.NANOSECONDS);
+
+        final Snapshot corrected = timer.getCorrectedAndReset();
+        assertEquals(3, corrected.getN());
+        assertEquals(15, corrected.getMin(), 0);
+        assertEquals(25, corrected.getMean(), 0);
+        assertEquals(35, corrected.getMax(), 0);
+    }
+
+    @Test
+    public void testTimingsWithinTheIntervalAreNotBackFilled() throws Exception {
+
+        timer.update(EXPECTED_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        timer.update(EXPECTED_INTERVAL_MILLIS - 1, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, timer.getAndReset().getN());
+        assertEquals(2, timer.getCorrectedAndReset().getN());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntervalShorterThanTheUnitIsRejected() throws Exception {
+
+        new IntervalCorrectedTimer(TimeUnit.MILLISECONDS, 10, TimeUnit.MICROSECONDS);
+    }
+}
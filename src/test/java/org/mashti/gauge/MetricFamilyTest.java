@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class MetricFamilyTest {
+
+    private MetricFamily<Counter> family;
+
+    @Before
+    public void setUp() throws Exception {
+
+        family = MetricFamily.counters("method", "status");
+    }
+
+    @Test
+    public void testStringLabels() throws Exception {
+
+        final Counter get_ok = family.get("GET", "200");
+        final Counter get_not_found = family.get("GET", "404");
+
+        assertNotSame(get_ok, get_not_found);
+        assertSame(get_ok, family.get("GET", "200"));
+        assertSame(get_ok, family.get(new String("GET"), new String("200")));
+        assertEquals(2, family.getChildren().size());
+    }
+
+    @Test
+    public void testEnumLabels() throws Exception {
+
+        final MetricFamily<Counter> by_type = MetricFamily.counters("type");
+        final Counter counter = by_type.get(MetricType.COUNTER);
+        final Counter timer = by_type.get(MetricType.TIMER);
+
+        assertNotSame(counter, timer);
+        assertSame(counter, by_type.get(MetricType.COUNTER));
+        assertEquals(Arrays.<Object>asList(MetricType.TIMER), by_type.getChildren().get(1).getLabelValues());
+    }
+
+    @Test
+    public void testLongLabels() throws Exception {
+
+        final Counter ok = family.get("GET", 200L);
+        final Counter negative = family.get("GET", -1L);
+        final Counter large = family.get("GET", Long.MAX_VALUE);
+
+        assertNotSame(ok, negative);
+        assertNotSame(ok, large);
+        assertSame(ok, family.get("GET", 200L));
+        assertSame(ok, family.get("GET", Long.valueOf(200)));
+        assertSame(large, family.get("GET", Long.valueOf(Long.MAX_VALUE)));
+        assertEquals(Arrays.<Object>asList("GET", 200L), family.getChildren().get(0).getLabelValues());
+
+        final MetricFamily<Counter> by_port = MetricFamily.counters("port");
+        assertSame(by_port.get(8080), by_port.get(Long.valueOf(8080)));
+    }
+
+    @Test
+    public void testCollidingHashesAreProbed() throws Exception {
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        final String[] colliding = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        final Counter[] counters = new Counter[colliding.length];
+        for (int i = 0; i < colliding.length; i++) {
+            counters[i] = family.get(colliding[i], colliding[i]);
+        }
+
+        for (int i = 0; i < colliding.length; i++) {
+            assertSame(counters[i], family.get(colliding[i], colliding[i]));
+            for (int j = 0; j < i; j++) {
+                assertNotSame(counters[i], counters[j]);
+            }
+        }
+        assertEquals(colliding.length, family.getChildren().size());
+    }
+
+    @Test
+    public void testTableIsResized() throws Exception {
+
+        final int count = 1000;
+        final Counter[] counters = new Counter[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = family.get("GET", i);
+            counters[i].add(i);
+        }
+
+        final List<MetricFamily.Child<Counter>> children = family.getChildren();
+        assertEquals(count, children.size());
+        for (int i = 0; i < count; i++) {
+            assertSame(counters[i], family.get("GET", i));
+            assertSame(counters[i], children.get(i).getMetric());
+            assertEquals(i, counters[i].get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLabelCountMustMatch() throws Exception {
+
+        family.get("GET");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testLabelValuesMustNotBeNull() throws Exception {
+
+        family.get("GET", null);
+    }
+}
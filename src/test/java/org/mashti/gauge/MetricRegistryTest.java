@@ -0,0 +1,316 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class MetricRegistryTest {
+
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+
+        registry = new MetricRegistry("test");
+    }
+
+    @Test
+    public void testGetOrCreateReturnsTheSameMetric() throws Exception {
+
+        final Counter counter = registry.counter("counter");
+        final Timer timer = registry.timer("timer");
+        final Rate rate = registry.rate("rate");
+        final Sampler sampler = registry.sampler("sampler");
+
+        assertSame(counter, registry.counter("counter"));
+        assertSame(timer, registry.timer("timer"));
+        assertSame(rate, registry.rate("rate"));
+        assertSame(sampler, registry.sampler("sampler"));
+        assertSame(counter, registry.get("counter"));
+        assertEquals(4, registry.getSnapshot().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetOrCreateRejectsAnotherType() throws Exception {
+
+        registry.counter("name");
+        registry.timer("name");
+    }
+
+    @Test
+    public void testConcurrentGetOrCreateRegistersOnce() throws Exception {
+
+        final int thread_count = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReferenceArray<Counter> counters = new AtomicReferenceArray<>(thread_count);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < thread_count; t++) {
+            final int index = t;
+            final Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    counters.set(index, registry.counter("shared"));
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int t = 0; t < thread_count; t++) {
+            assertSame(registry.get("shared"), counters.get(t));
+        }
+        assertEquals(1, registry.getSnapshot().size());
+    }
+
+    @Test
+    public void testRegisteredMetricsAreInRegistrationOrder() throws Exception {
+
+        final int count = 1000;
+        for (int i = 0; i < count; i++) {
+            registry.counter("counter." + i);
+        }
+
+        final RegistrySnapshot snapshot = registry.getSnapshot();
+        assertEquals(count, snapshot.size());
+        final Iterator<Map.Entry<String, Metric>> iterator = registry.getRegisteredMetrics().entrySet().iterator();
+        for (int i = 0; i < count; i++) {
+            final Map.Entry<String, Metric> entry = iterator.next();
+            assertEquals("counter." + i, snapshot.getName(i));
+            assertEquals("counter." + i, entry.getKey());
+            assertSame(registry.get("counter." + i), snapshot.getMetric(i));
+            assertSame(MetricType.COUNTER, snapshot.getType(i));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() throws Exception {
+
+        final Counter first = registry.counter("first");
+        final RegistrySnapshot snapshot = registry.getSnapshot();
+        final Map<String, Metric> metrics = registry.getRegisteredMetrics();
+
+        registry.counter("second");
+        registry.register("first", new Counter());
+        registry.remove("second");
+        registry.counter("third");
+
+        assertEquals(1, snapshot.size());
+        assertEquals("first", snapshot.getName(0));
+        assertSame(first, snapshot.getMetric(0));
+        assertEquals(1, metrics.size());
+        assertSame(first, metrics.get("first"));
+        assertEquals(2, registry.getSnapshot().size());
+        assertEquals("third", registry.getSnapshot().getName(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSnapshotIsBoundedByItsSize() throws Exception {
+
+        registry.counter("first");
+        final RegistrySnapshot snapshot = registry.getSnapshot();
+        registry.counter("second");
+
+        snapshot.getName(1);
+    }
+
+    @Test
+    public void testRegisterReplacesInPlace() throws Exception {
+
+        final Counter original = new Counter();
+        final Counter replacement = new Counter();
+        registry.register("first", original);
+        registry.counter("second");
+
+        assertSame(original, registry.register("first", replacement));
+        assertSame(replacement, registry.get("first"));
+        assertEquals("first", registry.getSnapshot().getName(0));
+        assertSame(replacement, registry.getSnapshot().getMetric(0));
+        assertEquals(2, registry.getSnapshot().size());
+    }
+
+    @Test
+    public void testListenersAreNotified() throws Exception {
+
+        final Counter existing = registry.counter("existing");
+        final List<String> events = new ArrayList<>();
+        final MetricRegistryListener listener = new MetricRegistryListener() {
+
+            @Override
+            public void onMetricAdded(String name, Metric metric) {
+
+                events.add("added " + name);
+            }
+
+            @Override
+            public void onMetricRemoved(String name, Metric metric) {
+
+                events.add("removed " + name);
+            }
+        };
+        registry.addListener(listener);
+        registry.counter("created");
+        registry.register("existing", new Counter());
+        assertNull(registry.remove("missing"));
+        registry.remove("created");
+        registry.removeListener(listener);
+        registry.counter("ignored");
+
+        assertEquals(5, events.size());
+        assertEquals("added existing", events.get(0));
+        assertEquals("added created", events.get(1));
+        assertEquals("removed existing", events.get(2));
+        assertEquals("added existing", events.get(3));
+        assertEquals("removed created", events.get(4));
+        assertNotSame(existing, registry.get("existing"));
+    }
+
+    @Test
+    public void testCardinalityLimit() throws Exception {
+
+        registry.setCardinalityLimit(2);
+        final Counter first = registry.counter("first");
+        final Counter second = registry.counter("second");
+        final Counter overflow = registry.counter("third");
+
+        assertNotSame(first, second);
+        assertSame(overflow, registry.counter("fourth"));
+        assertSame(overflow, registry.get(MetricRegistry.OVERFLOW_METRIC_NAME_PREFIX + "counter"));
+        assertSame(first, registry.counter("first"));
+        assertNull(registry.get("third"));
+        assertEquals(2, ((Counter) registry.get(MetricRegistry.OVERFLOWED_METRIC_NAME)).get());
+
+        registry.remove("first");
+        assertNotSame(overflow, registry.counter("third"));
+    }
+
+    @Test
+    public void testExpireIdleMetrics() throws Exception {
+
+        final Counter registered = new Counter();
+        registry.register("registered", registered);
+        registry.setExpiry(1, TimeUnit.MILLISECONDS);
+        registry.counter("idle");
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        assertEquals(1, registry.expireIdleMetrics());
+        assertNull(registry.get("idle"));
+        assertSame(registered, registry.get("registered"));
+        assertEquals(1, ((Counter) registry.get(MetricRegistry.EXPIRED_METRIC_NAME)).get());
+
+        registry.counter("touched");
+        registry.setExpiry(1, TimeUnit.HOURS);
+        assertEquals(0, registry.expireIdleMetrics());
+        assertEquals(Integer.valueOf(5), ((Gauge<?>) registry.get(MetricRegistry.SIZE_METRIC_NAME)).get());
+    }
+
+    @Test
+    public void testExpiryTracksUpdatesNotLookups() throws Exception {
+
+        registry.setExpiry(200, TimeUnit.MILLISECONDS);
+        final Counter active = registry.counter("active");
+        final Rate looked_up = registry.rate("looked_up");
+        TimeUnit.MILLISECONDS.sleep(120);
+        assertEquals(0, registry.expireIdleMetrics());
+
+        active.increment();
+        assertSame(looked_up, registry.rate("looked_up"));
+        TimeUnit.MILLISECONDS.sleep(120);
+
+        assertEquals(1, registry.expireIdleMetrics());
+        assertSame(active, registry.get("active"));
+        assertNull(registry.get("looked_up"));
+    }
+
+    @Test
+    public void testIdleMetricsExpireTogether() throws Exception {
+
+        final Counter registered = new Counter();
+        registry.register("registered", registered);
+        registry.setExpiry(1, TimeUnit.MILLISECONDS);
+        final int count = 100;
+        for (int i = 0; i < count; i++) {
+            registry.counter("counter." + i);
+            registry.timer("timer." + i);
+        }
+        final List<String> removed = new ArrayList<>();
+        registry.addListener(new MetricRegistryListener() {
+
+            @Override
+            public void onMetricAdded(String name, Metric metric) {
+
+            }
+
+            @Override
+            public void onMetricRemoved(String name, Metric metric) {
+
+                removed.add(name);
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        assertEquals(2 * count, registry.expireIdleMetrics());
+        assertEquals(2 * count, removed.size());
+        assertEquals("counter.0", removed.get(0));
+        assertEquals("timer." + (count - 1), removed.get(2 * count - 1));
+
+        final RegistrySnapshot snapshot = registry.getSnapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals("registered", snapshot.getName(0));
+        assertEquals(MetricRegistry.SIZE_METRIC_NAME, snapshot.getName(1));
+        assertEquals(MetricRegistry.OVERFLOWED_METRIC_NAME, snapshot.getName(2));
+        assertEquals(MetricRegistry.EXPIRED_METRIC_NAME, snapshot.getName(3));
+
+        registry.counter("counter.0");
+        assertEquals("counter.0", registry.getSnapshot().getName(4));
+    }
+}
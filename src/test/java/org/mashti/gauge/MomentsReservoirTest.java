@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class MomentsReservoirTest {
+
+    private static final double LARGE_MEAN = 1e9;
+    private static final int SAMPLE_COUNT = 1000;
+    private MomentsReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+
+        reservoir = new MomentsReservoir();
+    }
+
+    @Test
+    public void testMomentsOfSamplesWithLargeMeanAndSmallVariance() throws Exception {
+
+        for (int i = 1; i <= SAMPLE_COUNT; i++) {
+            reservoir.update(LARGE_MEAN + i);
+        }
+
+        final MomentsSnapshot snapshot = reservoir.getAndReset();
+        assertEquals(SAMPLE_COUNT, snapshot.getN());
+        assertEquals(LARGE_MEAN + 1, snapshot.getMin(), 0);
+        assertEquals(LARGE_MEAN + SAMPLE_COUNT, snapshot.getMax(), 0);
+        assertEquals(LARGE_MEAN + (SAMPLE_COUNT + 1) / 2.0, snapshot.getMean(), 1e-6);
+        assertEquals(Math.sqrt(SAMPLE_COUNT * (SAMPLE_COUNT + 1) / 12.0), snapshot.getStandardDeviation(), 1e-6);
+    }
+
+    @Test
+    public void testShiftIsCarriedOverToTheNextInterval() throws Exception {
+
+        reservoir.update(0);
+        assertEquals(1, reservoir.getAndReset().getN());
+
+        for (int i = 1; i <= SAMPLE_COUNT; i++) {
+            reservoir.update(LARGE_MEAN + i);
+        }
+        final MomentsSnapshot first = reservoir.getAndReset();
+        assertEquals(LARGE_MEAN + (SAMPLE_COUNT + 1) / 2.0, first.getMean(), 1e-3);
+        assertEquals(0, reservoir.getAndReset().getN());
+
+        for (int i = 1; i <= SAMPLE_COUNT; i++) {
+            reservoir.update(LARGE_MEAN + i);
+        }
+        final MomentsSnapshot second = reservoir.getAndReset();
+        assertEquals(SAMPLE_COUNT, second.getN());
+        assertEquals(LARGE_MEAN + (SAMPLE_COUNT + 1) / 2.0, second.getMean(), 1e-6);
+        assertEquals(Math.sqrt(SAMPLE_COUNT * (SAMPLE_COUNT + 1) / 12.0), second.getStandardDeviation(), 1e-6);
+    }
+
+    @Test
+    public void testGetAndResetStartsNewInterval() throws Exception {
+
+        reservoir.update(1);
+        reservoir.update(3);
+        assertEquals(2, reservoir.get().getN());
+        assertEquals(2, reservoir.getAndReset().getN());
+
+        final MomentsSnapshot empty = reservoir.getAndReset();
+        assertEquals(0, empty.getN());
+        assertTrue(Double.isNaN(empty.getMean()));
+        assertTrue(Double.isNaN(empty.getMin()));
+        assertTrue(Double.isNaN(empty.getPercentile(50)));
+
+        reservoir.update(-5);
+        final MomentsSnapshot snapshot = reservoir.getAndReset();
+        assertEquals(1, snapshot.getN());
+        assertEquals(-5, snapshot.getMin(), 0);
+        assertEquals(-5, snapshot.getMax(), 0);
+        assertEquals(-5, snapshot.getMean(), 0);
+        assertEquals(0, snapshot.getStandardDeviation(), 0);
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class OffHeapReservoirTest {
+
+    private static final double[] PERCENTILES = {0.1, 1, 25, 50, 75, 99, 99.9, 100};
+
+    @Test
+    public void testCapacityIsCountedInSamples() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(1000, 256, 64);
+        for (int i = 0; i < 1500; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(1000, snapshot.getN());
+        assertEquals(0, snapshot.getMin(), 0);
+        assertEquals(999, snapshot.getMax(), 0);
+    }
+
+    @Test
+    public void testThreadsShareTheCapacity() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(1000, 1000, 10);
+        final int thread_count = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < thread_count; t++) {
+            final Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        reservoir.update(i);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(thread_count * 200, reservoir.getAndReset().getN());
+    }
+
+    @Test
+    public void testSnapshotOutlivesReset() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(100, 10, 5);
+        for (int i = 1; i <= 10; i++) {
+            reservoir.update(i);
+        }
+        final Snapshot first = reservoir.getAndReset();
+
+        for (int i = 0; i < 10; i++) {
+            reservoir.update(100);
+        }
+        final Snapshot second = reservoir.getAndReset();
+
+        assertEquals(10, first.getN());
+        assertEquals(5.5, first.getMean(), 0);
+        assertEquals(5, first.getPercentile(50), 0);
+        assertEquals(10, second.getN());
+        assertEquals(100, second.getPercentile(50), 0);
+        assertEquals(0, reservoir.getAndReset().getN());
+    }
+
+    @Test
+    public void testIntervalsAreReused() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(100, 10, 5);
+        for (int interval = 0; interval < 100; interval++) {
+            for (int i = 0; i < 7 + interval % 5; i++) {
+                reservoir.update(interval);
+            }
+
+            final Snapshot snapshot = reservoir.getAndReset();
+            assertEquals(7 + interval % 5, snapshot.getN());
+            assertEquals(interval, snapshot.getMin(), 0);
+            assertEquals(interval, snapshot.getMax(), 0);
+            assertEquals(interval, snapshot.getPercentile(50), 0);
+        }
+    }
+
+    @Test
+    public void testChunkOfAnIdleThreadIsNotReused() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(100, 10, 5);
+        reservoir.update(1);
+        reservoir.update(2);
+        assertEquals(2, reservoir.getAndReset().getN());
+        assertEquals(0, reservoir.getAndReset().getN());
+
+        reservoir.update(3);
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(1, snapshot.getN());
+        assertEquals(3, snapshot.getMin(), 0);
+    }
+
+    @Test
+    public void testPercentilesThatAreNotSelectedAreInterpolated() throws Exception {
+
+        final OffHeapReservoir reservoir = new OffHeapReservoir(1000, 1000, 100, 25, 50);
+        for (int i = 1; i <= 100; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(25, snapshot.getPercentile(25), 0);
+        assertEquals(50, snapshot.getPercentile(50), 0);
+        assertEquals(37.5, snapshot.getPercentile(37.5), 0);
+        assertEquals(13, snapshot.getPercentile(12.5), 0);
+        assertEquals(75, snapshot.getPercentile(75), 0);
+        assertEquals(100, snapshot.getPercentile(100), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentilesMustBeWithinRange() throws Exception {
+
+        new OffHeapReservoir(1000, 1000, 100, 0);
+    }
+
+    @Test
+    public void testPercentilesAreSelectedByNearestRank() throws Exception {
+
+        final List<Double> samples = new ArrayList<>();
+        for (int i = -500; i < 500; i++) {
+            samples.add(i * 0.5);
+        }
+        Collections.shuffle(samples);
+
+        final DoubleBuffer[] segments = new DoubleBuffer[7];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = DoubleBuffer.allocate(samples.size());
+        }
+        for (int i = 0; i < samples.size(); i++) {
+            segments[i % segments.length].put(samples.get(i));
+        }
+        for (DoubleBuffer segment : segments) {
+            segment.flip();
+        }
+
+        final OffHeapSnapshot snapshot = new OffHeapSnapshot(segments);
+        final double[] sorted = new double[samples.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+
+        final double[] expected = new double[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            expected[i] = sorted[(int) Math.ceil(PERCENTILES[i] / 100 * sorted.length) - 1];
+            assertEquals(expected[i], snapshot.getPercentile(PERCENTILES[i]), 0);
+        }
+        assertArrayEquals(expected, snapshot.getPercentiles(PERCENTILES), 0);
+        assertEquals(1000, snapshot.getN());
+        assertEquals(-250, snapshot.getMin(), 0);
+        assertEquals(249.5, snapshot.getMax(), 0);
+    }
+
+    @Test
+    public void testEmptySnapshot() throws Exception {
+
+        final OffHeapSnapshot snapshot = new OffHeapSnapshot(new DoubleBuffer[0]);
+
+        assertEquals(0, snapshot.getN());
+        assertTrue(Double.isNaN(snapshot.getPercentile(50)));
+        assertTrue(Double.isNaN(snapshot.getPercentiles(25, 75)[1]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkLargerThanSlab() throws Exception {
+
+        new OffHeapReservoir(1000, 64, 128);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class RateTest {
+
+    private Rate rate;
+
+    @Before
+    public void setUp() throws Exception {
+
+        rate = new Rate(TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testIntervalAndReset() throws Exception {
+
+        rate.mark();
+        rate.mark(4);
+        assertEquals(5, rate.getCount());
+        assertEquals(5, rate.getInterval().getCount());
+
+        final Rate.Interval interval = rate.getIntervalAndReset();
+        assertEquals(5, interval.getCount());
+        assertTrue(interval.getElapsedNanos() >= 0);
+        assertEquals(0, rate.getCount());
+        assertEquals(0, rate.getRateAndReset(), 0);
+    }
+
+    @Test
+    public void testConcurrentIntervalsAccountForEveryMark() throws Exception {
+
+        final int thread_count = 4;
+        final int marks_per_thread = 1000000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(thread_count);
+        final Thread[] threads = new Thread[thread_count];
+        for (int i = 0; i < thread_count; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                        for (int j = 0; j < marks_per_thread; j++) {
+                            rate.mark();
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        final AtomicLong interval_total = new AtomicLong();
+        final AtomicLong interval_count = new AtomicLong();
+        final AtomicBoolean negative_interval = new AtomicBoolean();
+        final Thread[] readers = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    while (done.getCount() > 0) {
+                        final Rate.Interval interval = rate.getIntervalAndReset();
+                        if (interval.getCount() < 0 || interval.getElapsedNanos() < 0) {
+                            negative_interval.set(true);
+                        }
+                        interval_total.addAndGet(interval.getCount());
+                        interval_count.incrementAndGet();
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        interval_total.addAndGet(rate.getIntervalAndReset().getCount());
+
+        assertTrue(interval_count.get() > 1);
+        assertFalse(negative_interval.get());
+        assertEquals((long) thread_count * marks_per_thread, interval_total.get());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class RollingCounterTest {
+
+    private RollingCounter counter;
+
+    @Before
+    public void setUp() throws Exception {
+
+        counter = new RollingCounter(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWindowSum() throws Exception {
+
+        counter.add(1, 10);
+        counter.add(2, 11);
+        counter.add(3, 12);
+        counter.add(4, 12);
+
+        assertEquals(7, counter.getSum(1, TimeUnit.SECONDS, 12));
+        assertEquals(9, counter.getSum(2, TimeUnit.SECONDS, 12));
+        assertEquals(10, counter.getSum(5, TimeUnit.SECONDS, 12));
+        assertEquals(9, counter.getSum(5, TimeUnit.SECONDS, 15));
+        assertEquals(7, counter.getSum(5, TimeUnit.SECONDS, 16));
+        assertEquals(0, counter.getSum(5, TimeUnit.SECONDS, 17));
+    }
+
+    @Test
+    public void testBucketIsRecycledInALaterSecond() throws Exception {
+
+        counter.add(5, 3);
+        counter.add(7, 8);
+
+        assertEquals(7, counter.getSum(5, TimeUnit.SECONDS, 8));
+        assertEquals(7, counter.getMaxPerSecond(5, TimeUnit.SECONDS, 8));
+
+        counter.add(1, 13);
+        counter.add(1, 13);
+        assertEquals(2, counter.getSum(5, TimeUnit.SECONDS, 13));
+        assertEquals(0, counter.getSum(5, TimeUnit.SECONDS, 18));
+    }
+
+    @Test
+    public void testBucketIsNotRecycledByAnEarlierSecond() throws Exception {
+
+        counter.add(5, 8);
+        counter.add(1, 3);
+
+        assertEquals(6, counter.getSum(1, TimeUnit.SECONDS, 8));
+    }
+
+    @Test
+    public void testMaxPerSecond() throws Exception {
+
+        counter.add(9, 20);
+        counter.add(4, 21);
+        counter.add(6, 22);
+        counter.add(2, 22);
+
+        assertEquals(8, counter.getMaxPerSecond(1, TimeUnit.SECONDS, 22));
+        assertEquals(8, counter.getMaxPerSecond(2, TimeUnit.SECONDS, 22));
+        assertEquals(9, counter.getMaxPerSecond(3, TimeUnit.SECONDS, 22));
+        assertEquals(9, counter.getMaxPerSecond(5, TimeUnit.SECONDS, 24));
+        assertEquals(8, counter.getMaxPerSecond(5, TimeUnit.SECONDS, 25));
+        assertEquals(0, counter.getMaxPerSecond(5, TimeUnit.SECONDS, 27));
+    }
+
+    @Test
+    public void testUpdatesInTheCurrentSecondAreCounted() throws Exception {
+
+        counter.increment();
+        counter.add(2);
+
+        assertEquals(3, counter.getSum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowLongerThanTheRing() throws Exception {
+
+        counter.getSum(6, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mashti.gauge.util.CoarseClock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class RollingRateTest {
+
+    private RollingCounter counter;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+
+        counter = new RollingCounter(60, TimeUnit.SECONDS);
+        now = CoarseClock.currentSecond();
+    }
+
+    @Test
+    public void testCountAndPeakOverTheWindow() throws Exception {
+
+        final RollingRate rate = new RollingRate(TimeUnit.SECONDS, counter);
+        counter.add(30, now);
+        counter.add(60, now);
+
+        assertEquals(90, rate.getCount(60, TimeUnit.SECONDS));
+        assertEquals(90, rate.getPeakRate(60, TimeUnit.SECONDS), 0);
+    }
+
+    @Test
+    public void testPeakRateIsConvertedToTheUnit() throws Exception {
+
+        final RollingRate rate = new RollingRate(TimeUnit.MINUTES, counter);
+        counter.add(5, now);
+
+        assertEquals(300, rate.getPeakRate(60, TimeUnit.SECONDS), 0);
+    }
+
+    @Test
+    public void testMeanRateOfMarks() throws Exception {
+
+        final RollingRate rate = new RollingRate();
+        assertEquals(0, rate.getMeanRate(60, TimeUnit.SECONDS), 0);
+
+        rate.mark();
+        rate.mark(9);
+        assertEquals(10, rate.getCount(60, TimeUnit.SECONDS));
+        assertTrue(rate.getMeanRate(60, TimeUnit.SECONDS) > 0);
+        assertEquals(60, rate.getLengthInSeconds());
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class SampledTimerTest {
+
+    private static final int INVOCATIONS = 100000;
+    private SlidingWindowReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+
+        reservoir = new SlidingWindowReservoir(INVOCATIONS);
+    }
+
+    @Test
+    public void testEveryInvocationIsTimedWithIntervalOfOne() throws Exception {
+
+        final SampledTimer timer = new SampledTimer(TimeUnit.NANOSECONDS, 1, reservoir);
+        for (int i = 0; i < 100; i++) {
+            final long start = timer.start();
+            assertTrue(start != SampledTimer.NOT_SAMPLED);
+            timer.stop(start);
+        }
+
+        assertEquals(100, reservoir.get().getN());
+        assertEquals(100, timer.getAndReset().getN());
+    }
+
+    @Test
+    public void testOneInIntervalInvocationsIsTimed() throws Exception {
+
+        final SampledTimer timer = new SampledTimer(TimeUnit.NANOSECONDS, 10, reservoir);
+        int timed = 0;
+        for (int i = 0; i < INVOCATIONS; i++) {
+            final long start = timer.start();
+            if (start != SampledTimer.NOT_SAMPLED) {
+                timed++;
+            }
+            timer.stop(start);
+        }
+
+        assertEquals(INVOCATIONS, timer.getCount());
+        assertEquals(timed, reservoir.get().getN());
+        assertEquals(INVOCATIONS / 10, timed, INVOCATIONS / 100);
+
+        final Snapshot snapshot = timer.getAndReset();
+        assertEquals(INVOCATIONS, snapshot.getN());
+        assertTrue(snapshot.getMin() >= 0);
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getAndReset().getN());
+    }
+
+    @Test
+    public void testSkippedInvocationIsNotRecorded() throws Exception {
+
+        final SampledTimer timer = new SampledTimer(TimeUnit.NANOSECONDS, 10, reservoir);
+
+        assertEquals(0, timer.stop(SampledTimer.NOT_SAMPLED));
+        assertEquals(0, reservoir.get().getN());
+    }
+
+    @Test
+    public void testUpdatesAreNeverSkipped() throws Exception {
+
+        final SampledTimer timer = new SampledTimer(TimeUnit.MILLISECONDS, 1000, reservoir);
+        for (int i = 1; i <= 10; i++) {
+            timer.update(i, TimeUnit.MILLISECONDS);
+        }
+
+        final Snapshot snapshot = timer.getAndReset();
+        assertEquals(10, snapshot.getN());
+        assertEquals(1, snapshot.getMin(), 0);
+        assertEquals(10, snapshot.getMax(), 0);
+        assertEquals(5.5, snapshot.getMean(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSamplingIntervalMustBePositive() throws Exception {
+
+        new SampledTimer(0);
+    }
+}
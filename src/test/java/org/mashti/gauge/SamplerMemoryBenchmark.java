@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap footprint of thousands of mostly idle {@link Sampler samplers}, and the garbage that is generated when they are reported.
+ * A sampler that eagerly allocates its windows would take up {@code 2 * 8 * WINDOW_LIMIT} bytes regardless of its use; the footprint measured here should instead grow with the number of samples received per interval.
+ * Run with a fixed heap size, e.g. {@code -Xms1g -Xmx1g}, for stable measurements.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public final class SamplerMemoryBenchmark {
+
+    private static final int SAMPLER_COUNT = 5000;
+    private static final int HOT_SAMPLER_RATIO = 10;
+    private static final int HOT_SAMPLES_PER_INTERVAL = Sampler.WINDOW_LIMIT;
+    private static final int WARM_SAMPLES_PER_INTERVAL = 100;
+    private static final int INTERVALS = 5;
+    /** Keeps the samplers reachable while the heap is measured. */
+    private static Sampler[] samplers;
+
+    private SamplerMemoryBenchmark() {
+
+    }
+
+    public static void main(String[] args) {
+
+        final long eager_bytes = 2L * 8 * Sampler.WINDOW_LIMIT * SAMPLER_COUNT;
+        System.out.printf("%d samplers with eager windows: %,d bytes%n", SAMPLER_COUNT, eager_bytes);
+
+        final long baseline = getUsedHeap();
+        samplers = new Sampler[SAMPLER_COUNT];
+        for (int i = 0; i < SAMPLER_COUNT; i++) {
+            samplers[i] = new Sampler();
+        }
+        final long idle_bytes = getUsedHeap() - baseline;
+        System.out.printf("%d idle samplers: %,d bytes (%,d bytes per sampler)%n", SAMPLER_COUNT, idle_bytes, idle_bytes / SAMPLER_COUNT);
+
+        long report_garbage = 0;
+        for (int interval = 0; interval < INTERVALS; interval++) {
+            for (int i = 0; i < SAMPLER_COUNT; i++) {
+                final int sample_count = i % HOT_SAMPLER_RATIO == 0 ? HOT_SAMPLES_PER_INTERVAL : WARM_SAMPLES_PER_INTERVAL;
+                for (int sample = 0; sample < sample_count; sample++) {
+                    samplers[i].update(sample);
+                }
+            }
+
+            final long allocated_before_report = getAllocatedBytes();
+            for (Sampler sampler : samplers) {
+                sampler.getAndReset();
+            }
+            report_garbage = getAllocatedBytes() - allocated_before_report;
+        }
+        final long used_bytes = getUsedHeap() - baseline;
+        System.out.printf("%d samplers, 1 in %d hot: %,d bytes (%,d bytes per sampler)%n", SAMPLER_COUNT, HOT_SAMPLER_RATIO, used_bytes, used_bytes / SAMPLER_COUNT);
+        System.out.printf("garbage per report of all samplers: %,d bytes%n", report_garbage);
+    }
+
+    private static long getUsedHeap() {
+
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long getAllocatedBytes() {
+
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class SlidingTimeWindowReservoirTest {
+
+    private static final long WINDOW_SECONDS = 3;
+    private SlidingTimeWindowReservoir reservoir;
+
+    @Before
+    public void setUp() throws Exception {
+
+        reservoir = new SlidingTimeWindowReservoir(WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSlotsExpireAfterTheWindow() throws Exception {
+
+        reservoir.update(10, 100);
+
+        assertEquals(1, reservoir.get(100).getN());
+        assertEquals(1, reservoir.get(100 + WINDOW_SECONDS - 1).getN());
+        assertEquals(0, reservoir.get(100 + WINDOW_SECONDS).getN());
+    }
+
+    @Test
+    public void testSlotIsRecycledWhenTheSecondWraps() throws Exception {
+
+        reservoir.update(1, 100);
+        reservoir.update(1, 100);
+        reservoir.update(2, 100 + WINDOW_SECONDS);
+
+        final Snapshot snapshot = reservoir.get(100 + WINDOW_SECONDS);
+        assertEquals(1, snapshot.getN());
+        assertEquals(2, snapshot.getMin(), 0);
+    }
+
+    @Test
+    public void testOnlyLiveSlotsAreMerged() throws Exception {
+
+        reservoir.update(1, 100);
+        reservoir.update(2, 101);
+        reservoir.update(3, 102);
+        assertEquals(3, reservoir.get(102).getN());
+
+        final Snapshot snapshot = reservoir.get(103);
+        assertEquals(2, snapshot.getN());
+        assertEquals(2, snapshot.getMin(), 0);
+        assertEquals(3, snapshot.getMax(), 0);
+    }
+
+    @Test
+    public void testGetAndResetIsNotDestructive() throws Exception {
+
+        final SlidingTimeWindowReservoir reservoir = new SlidingTimeWindowReservoir();
+        reservoir.update(5);
+        reservoir.update(7);
+
+        assertEquals(2, reservoir.getAndReset().getN());
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(2, snapshot.getN());
+        assertEquals(6, snapshot.getMean(), 6 * 0.01);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class TimerTest {
+
+    private static final int WARM_UP_ITERATIONS = 100000;
+    private static final int MEASURED_ITERATIONS = 1000000;
+    private Timer timer;
+
+    @Before
+    public void setUp() throws Exception {
+
+        timer = new Timer(TimeUnit.NANOSECONDS, new HistogramReservoir());
+    }
+
+    @Test
+    public void testStartAndStop() throws Exception {
+
+        final long start = timer.start();
+        final long elapsed = timer.stop(start);
+        assertTrue(elapsed >= 0);
+
+        final Snapshot snapshot = timer.getAndReset();
+        assertEquals(1, snapshot.getN());
+        assertEquals(elapsed, snapshot.getMax(), 0);
+    }
+
+    @Test
+    public void testContextIsReusable() throws Exception {
+
+        final Timer.Context context = timer.newContext();
+        for (int i = 0; i < 10; i++) {
+            try (Timer.Context started = context.start()) {
+                assertSame(context, started);
+            }
+        }
+        assertEquals(10, timer.getAndReset().getN());
+    }
+
+    @Test
+    public void testStartAndStopDoNotAllocate() throws Exception {
+
+        final com.sun.management.ThreadMXBean thread_mx_bean = getThreadMXBean();
+        final long thread_id = Thread.currentThread().getId();
+
+        timeUsingStartAndStop(WARM_UP_ITERATIONS);
+        final long allocated_before = thread_mx_bean.getThreadAllocatedBytes(thread_id);
+        timeUsingStartAndStop(MEASURED_ITERATIONS);
+        final long allocated = thread_mx_bean.getThreadAllocatedBytes(thread_id) - allocated_before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < MEASURED_ITERATIONS);
+    }
+
+    @Test
+    public void testContextDoesNotAllocate() throws Exception {
+
+        final com.sun.management.ThreadMXBean thread_mx_bean = getThreadMXBean();
+        final long thread_id = Thread.currentThread().getId();
+        final Timer.Context context = timer.newContext();
+
+        timeUsingContext(context, WARM_UP_ITERATIONS);
+        final long allocated_before = thread_mx_bean.getThreadAllocatedBytes(thread_id);
+        timeUsingContext(context, MEASURED_ITERATIONS);
+        final long allocated = thread_mx_bean.getThreadAllocatedBytes(thread_id) - allocated_before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < MEASURED_ITERATIONS);
+    }
+
+    private void timeUsingStartAndStop(int iterations) {
+
+        for (int i = 0; i < iterations; i++) {
+            timer.stop(timer.start());
+        }
+    }
+
+    private static void timeUsingContext(Timer.Context context, int iterations) {
+
+        for (int i = 0; i < iterations; i++) {
+            try (Timer.Context started = context.start()) {
+                assertSame(context, started);
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean thread_mx_bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(thread_mx_bean.isThreadAllocatedMemorySupported() && thread_mx_bean.isThreadAllocatedMemoryEnabled());
+        return thread_mx_bean;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class UniformReservoirTest {
+
+    @Test
+    public void testMomentsAreExact() throws Exception {
+
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        final int sample_count = 100000;
+        for (int i = 1; i <= sample_count; i++) {
+            reservoir.update(1e9 + i);
+        }
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(sample_count, snapshot.getN());
+        assertEquals(1e9 + 1, snapshot.getMin(), 0);
+        assertEquals(1e9 + sample_count, snapshot.getMax(), 0);
+        assertEquals(1e9 + (sample_count + 1) / 2.0, snapshot.getMean(), 1e-6);
+        assertEquals(Math.sqrt(sample_count * (sample_count + 1.0) / 12), snapshot.getStandardDeviation(), 1e-6);
+        assertEquals(1e9 + sample_count, snapshot.getPercentile(100), 0);
+    }
+
+    @Test
+    public void testKeptSamplesAreUniform() throws Exception {
+
+        final UniformReservoir reservoir = new UniformReservoir(1000);
+        final int sample_count = 100000;
+        for (int i = 0; i < sample_count; i++) {
+            reservoir.update(i);
+        }
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        for (double percentile : new double[]{10, 50, 90}) {
+            assertEquals(percentile / 100 * sample_count, snapshot.getPercentile(percentile), 5000);
+        }
+    }
+
+    @Test
+    public void testSamplesAreWeightedByTheRateOfTheirThread() throws Exception {
+
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        updateInNewThread(reservoir, 1, 100000);
+        updateInNewThread(reservoir, 2, 1000);
+
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(101000, snapshot.getN());
+        assertEquals(1, snapshot.getPercentile(50), 0);
+        assertEquals(1, snapshot.getPercentile(98), 0);
+        assertEquals(2, snapshot.getPercentile(99.5), 0);
+    }
+
+    @Test
+    public void testBuffersAreReusedWithoutLeakingSamples() throws Exception {
+
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        for (int i = 1; i <= 2000; i++) {
+            reservoir.update(i);
+        }
+        assertEquals(2000, reservoir.getAndReset().getN());
+
+        for (int i = 0; i < 10; i++) {
+            reservoir.update(5);
+        }
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(10, snapshot.getN());
+        for (double percentile : new double[]{1, 50, 99, 100}) {
+            assertEquals(5, snapshot.getPercentile(percentile), 0);
+        }
+    }
+
+    @Test
+    public void testIdleThreadsAreRetired() throws Exception {
+
+        final UniformReservoir reservoir = new UniformReservoir(100);
+        reservoir.update(1);
+        assertEquals(1, reservoir.getAndReset().getN());
+
+        for (int i = 0; i < 3; i++) {
+            final Snapshot empty = reservoir.getAndReset();
+            assertEquals(0, empty.getN());
+            assertTrue(Double.isNaN(empty.getMean()));
+        }
+
+        reservoir.update(7);
+        reservoir.update(9);
+        final Snapshot snapshot = reservoir.getAndReset();
+        assertEquals(2, snapshot.getN());
+        assertEquals(8, snapshot.getMean(), 0);
+        assertEquals(7, snapshot.getMin(), 0);
+    }
+
+    private static void updateInNewThread(final UniformReservoir reservoir, final double sample, final int count) throws InterruptedException {
+
+        final Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+
+                for (int i = 0; i < count; i++) {
+                    reservoir.update(sample);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+    }
+}
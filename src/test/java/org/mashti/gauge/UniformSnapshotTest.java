@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pins the percentiles, mean and standard deviation of {@link UniformSnapshot} to the values computed by the {@code DescriptiveStatistics} of commons-math3 3.3, which samplers used before.
+ *
+ * @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk)
+ */
+public class UniformSnapshotTest {
+
+    private static final double[] PERCENTILES = {0.1, 1, 25, 50, 75, 99, 99.9, 100};
+
+    @Test
+    public void testSingleSample() throws Exception {
+
+        assertSnapshot(new double[] {7}, new double[] {7, 7, 7, 7, 7, 7, 7, 7}, 7, 0);
+    }
+
+    @Test
+    public void testTwoSamples() throws Exception {
+
+        assertSnapshot(new double[] {3, 1}, new double[] {1, 1, 1, 2, 3, 3, 3, 3}, 2, 1.4142135623730951);
+    }
+
+    @Test
+    public void testThreeSamples() throws Exception {
+
+        assertSnapshot(new double[] {3, 1, 2}, new double[] {1, 1, 1, 2, 3, 3, 3, 3}, 2, 1);
+    }
+
+    @Test
+    public void testDuplicateSamples() throws Exception {
+
+        assertSnapshot(new double[] {5, 5, 5, 1, 1, 9, 9, 9, 9, 2}, new double[] {1, 1, 1.75, 5, 9, 9, 9, 9}, 5.5, 3.3747427885527643);
+    }
+
+    @Test
+    public void testInterpolatedSamples() throws Exception {
+
+        assertSnapshot(new double[] {10, 20, 30, 40, 50, 60, 70, 80, 90, 100}, new double[] {10, 10, 27.5, 55, 82.5, 100, 100, 100}, 55, 30.276503540974915);
+    }
+
+    @Test
+    public void testEmptySnapshot() throws Exception {
+
+        final UniformSnapshot snapshot = new UniformSnapshot(new double[0], 0);
+        assertEquals(0, snapshot.getN());
+        assertTrue(Double.isNaN(snapshot.getPercentile(50)));
+        assertTrue(Double.isNaN(snapshot.getMean()));
+    }
+
+    private static void assertSnapshot(double[] samples, double[] expected_percentiles, double expected_mean, double expected_standard_deviation) {
+
+        final UniformSnapshot snapshot = new UniformSnapshot(samples, samples.length);
+        assertEquals(samples.length, snapshot.getN());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            assertEquals("percentile " + PERCENTILES[i], expected_percentiles[i], snapshot.getPercentile(PERCENTILES[i]), 1e-12);
+        }
+        assertEquals(expected_mean, snapshot.getMean(), 1e-12);
+        assertEquals(expected_standard_deviation, snapshot.getStandardDeviation(), 1e-12);
+    }
+}
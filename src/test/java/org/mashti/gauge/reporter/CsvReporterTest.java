@@ -29,11 +29,16 @@ package org.mashti.gauge.reporter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mashti.gauge.Counter;
 import org.mashti.gauge.MetricRegistry;
+import org.mashti.gauge.MomentsReservoir;
+import org.mashti.gauge.Sampler;
+import org.mashti.gauge.Timer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -62,7 +67,7 @@ public class CsvReporterTest {
 
     @After
     public void tearDown() throws Exception {
-        Files.delete(test_report_path);
+        Files.deleteIfExists(test_report_path);
         Files.delete(reports_home);
         reporter.stop();
     }
@@ -78,4 +83,81 @@ public class CsvReporterTest {
         reporter.report();
         assertEquals(3, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
     }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+
+        reporter.setFlushInterval(2);
+        reporter.report();
+        assertEquals(0, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
+        reporter.report();
+        assertEquals(3, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
+        reporter.report();
+        reporter.stop();
+        assertEquals(4, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
+        reporter.report();
+        assertEquals(5, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testCloseStopsListeningToTheRegistry() throws Exception {
+
+        reporter.report();
+        reporter.close();
+        registry.register("other_metric", new Counter());
+        reporter.report();
+
+        assertEquals(2, Files.readAllLines(test_report_path, StandardCharsets.UTF_8).size());
+        assertFalse(Files.exists(reports_home.resolve("other_metric.csv")));
+    }
+
+    @Test
+    public void testWideFormat() throws Exception {
+
+        final Path first_segment = reports_home.resolve("test_registry.0.csv");
+        final Path second_segment = reports_home.resolve("test_registry.1.csv");
+        reporter.setWideFormat(true);
+        reporter.report();
+        reporter.report();
+        registry.register("other_metric", new Counter());
+        reporter.report();
+        reporter.stop();
+
+        assertFalse(Files.exists(test_report_path));
+        final List<String> first_lines = Files.readAllLines(first_segment, StandardCharsets.UTF_8);
+        assertEquals(3, first_lines.size());
+        assertEquals("time,test_metric.count", first_lines.get(0));
+        final List<String> second_lines = Files.readAllLines(second_segment, StandardCharsets.UTF_8);
+        assertEquals(2, second_lines.size());
+        assertEquals("time,test_metric.count,other_metric.count", second_lines.get(0));
+
+        Files.delete(first_segment);
+        Files.delete(second_segment);
+    }
+
+    @Test
+    public void testMomentsAreReportedWithoutPercentiles() throws Exception {
+
+        final Path sampler_report_path = reports_home.resolve("moments_sampler.csv");
+        final Path timer_report_path = reports_home.resolve("moments_timer.csv");
+        final Sampler sampler = new Sampler(new MomentsReservoir());
+        final Timer timer = new Timer(TimeUnit.MILLISECONDS, new MomentsReservoir());
+        registry.register("moments_sampler", sampler);
+        registry.register("moments_timer", timer);
+        sampler.update(1);
+        sampler.update(3);
+        timer.update(2, TimeUnit.MILLISECONDS);
+        reporter.report();
+        reporter.stop();
+
+        final List<String> sampler_lines = Files.readAllLines(sampler_report_path, StandardCharsets.UTF_8);
+        assertEquals("time,count,min,mean,max,standard_deviation", sampler_lines.get(0));
+        assertTrue(sampler_lines.get(1).endsWith(",2,1.000000,2.000000,3.000000,1.414214"));
+        final List<String> timer_lines = Files.readAllLines(timer_report_path, StandardCharsets.UTF_8);
+        assertEquals("time,count,min,mean,max,standard_deviation,unit", timer_lines.get(0));
+        assertTrue(timer_lines.get(1).endsWith(",1,2.000000,2.000000,2.000000,0.000000,MILLISECONDS"));
+
+        Files.delete(sampler_report_path);
+        Files.delete(timer_report_path);
+    }
 }
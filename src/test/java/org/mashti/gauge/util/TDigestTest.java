@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class TDigestTest {
+
+    private static final double[] TAIL_QUANTILES = {0.001, 0.01, 0.99, 0.999};
+    private static final double[] MIDDLE_QUANTILES = {0.1, 0.25, 0.5, 0.75, 0.9};
+    private static final int SAMPLE_COUNT = 200000;
+
+    @Test
+    public void testEmptyDigest() throws Exception {
+
+        final TDigest digest = new TDigest(100);
+        assertEquals(0, digest.getCount());
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        assertTrue(Double.isNaN(digest.getMin()));
+        assertTrue(Double.isNaN(digest.getMax()));
+        assertTrue(Double.isNaN(digest.getMean()));
+        assertTrue(Double.isNaN(digest.getVariance()));
+
+        final TDigest merged = new TDigest(100);
+        merged.add(digest);
+        assertEquals(0, merged.getCount());
+        assertTrue(Double.isNaN(merged.quantile(0.5)));
+    }
+
+    @Test
+    public void testSingleSampleDigest() throws Exception {
+
+        final TDigest digest = new TDigest(100);
+        digest.add(42);
+        assertEquals(1, digest.getCount());
+        for (double quantile : new double[] {0, 0.001, 0.5, 0.999, 1}) {
+            assertEquals(42, digest.quantile(quantile), 0);
+        }
+        assertEquals(42, digest.getMin(), 0);
+        assertEquals(42, digest.getMax(), 0);
+        assertEquals(42, digest.getMean(), 0);
+        assertEquals(0, digest.getVariance(), 0);
+    }
+
+    @Test
+    public void testQuantilesOfUniformSamples() throws Exception {
+
+        final Random random = new Random(42);
+        final double[] samples = new double[SAMPLE_COUNT];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextDouble();
+        }
+        assertAccurate(samples, digestOf(100, samples));
+    }
+
+    @Test
+    public void testQuantilesOfSkewedSamples() throws Exception {
+
+        final Random random = new Random(42);
+        final double[] samples = new double[SAMPLE_COUNT];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = Math.exp(2 * random.nextGaussian());
+        }
+        assertAccurate(samples, digestOf(100, samples));
+    }
+
+    @Test
+    public void testMergeApproximatesDigestOfUnion() throws Exception {
+
+        final Random random = new Random(7);
+        final double[] first = new double[SAMPLE_COUNT];
+        final double[] second = new double[SAMPLE_COUNT];
+        final double[] union = new double[2 * SAMPLE_COUNT];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            first[i] = random.nextGaussian();
+            second[i] = 3 - Math.log(random.nextDouble());
+            union[i] = first[i];
+            union[SAMPLE_COUNT + i] = second[i];
+        }
+
+        final TDigest merged = new TDigest(100);
+        merged.add(digestOf(100, first));
+        merged.add(digestOf(100, second));
+        final TDigest reversed = new TDigest(100);
+        reversed.add(digestOf(100, second));
+        reversed.add(digestOf(100, first));
+
+        assertAccurate(union, merged);
+        assertAccurate(union, reversed);
+        final TDigest direct = digestOf(100, union);
+        assertEquals(direct.getCount(), merged.getCount());
+        assertEquals(direct.getMin(), merged.getMin(), 0);
+        assertEquals(direct.getMax(), merged.getMax(), 0);
+        assertEquals(direct.getMean(), merged.getMean(), 1e-9);
+        assertEquals(direct.getVariance(), merged.getVariance(), 1e-6);
+    }
+
+    @Test
+    public void testCentroidCountIsBoundedByCompression() throws Exception {
+
+        final Random random = new Random(42);
+        for (double compression : new double[] {20, 100, 500}) {
+            final TDigest digest = new TDigest(compression);
+            for (int i = 0; i < 1000000; i++) {
+                digest.add(random.nextGaussian());
+            }
+            digest.flush();
+            assertTrue(digest.getCentroidCount() + " centroids for compression " + compression, digest.getCentroidCount() <= compression);
+
+            final TDigest merged = new TDigest(compression);
+            for (int i = 0; i < 10; i++) {
+                merged.add(digest);
+            }
+            assertTrue(merged.getCentroidCount() + " merged centroids for compression " + compression, merged.getCentroidCount() <= compression);
+        }
+    }
+
+    private static TDigest digestOf(double compression, double[] samples) {
+
+        final TDigest digest = new TDigest(compression);
+        for (double sample : samples) {
+            digest.add(sample);
+        }
+        return digest;
+    }
+
+    private static void assertAccurate(double[] samples, TDigest digest) {
+
+        final double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        for (double quantile : TAIL_QUANTILES) {
+            assertRankError(sorted, digest, quantile, 0.002);
+        }
+        for (double quantile : MIDDLE_QUANTILES) {
+            assertRankError(sorted, digest, quantile, 0.02);
+        }
+        assertEquals(sorted[0], digest.quantile(0), 0);
+        assertEquals(sorted[sorted.length - 1], digest.quantile(1), 0);
+    }
+
+    private static void assertRankError(double[] sorted, TDigest digest, double quantile, double tolerance) {
+
+        int rank = Arrays.binarySearch(sorted, digest.quantile(quantile));
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        assertEquals("rank of quantile " + quantile, quantile, (double) rank / sorted.length, tolerance);
+    }
+}
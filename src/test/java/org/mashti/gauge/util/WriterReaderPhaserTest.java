@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2015, Masih H. Derkani
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.mashti.gauge.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** @author Masih Hajiarabderkani (mh638@st-andrews.ac.uk) */
+public class WriterReaderPhaserTest {
+
+    private WriterReaderPhaser phaser;
+    private AtomicLong[] buffers;
+    private volatile int active;
+
+    @Before
+    public void setUp() throws Exception {
+
+        phaser = new WriterReaderPhaser();
+        buffers = new AtomicLong[] {new AtomicLong(), new AtomicLong()};
+        active = 0;
+    }
+
+    @Test
+    public void testFlipsNeitherLoseNorDuplicateWrites() throws Exception {
+
+        final int thread_count = 4;
+        final int writes_per_thread = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(thread_count);
+        final Thread[] writers = new Thread[thread_count];
+        for (int i = 0; i < thread_count; i++) {
+            writers[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                        for (int j = 0; j < writes_per_thread; j++) {
+                            final long critical_value = phaser.writerCriticalSectionEnter();
+                            try {
+                                final AtomicLong buffer = buffers[active];
+                                Thread.yield();
+                                buffer.incrementAndGet();
+                            }
+                            finally {
+                                phaser.writerCriticalSectionExit(critical_value);
+                            }
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            };
+            writers[i].start();
+        }
+
+        final AtomicLong read_total = new AtomicLong();
+        final AtomicLong flip_count = new AtomicLong();
+        final Thread[] readers = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    while (done.getCount() > 0) {
+                        read_total.addAndGet(flip());
+                        flip_count.incrementAndGet();
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        read_total.addAndGet(flip());
+        read_total.addAndGet(flip());
+
+        assertTrue(flip_count.get() > 1);
+        assertEquals((long) thread_count * writes_per_thread, read_total.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFlipRequiresReaderLock() throws Exception {
+
+        phaser.flipPhase();
+    }
+
+    private long flip() {
+
+        phaser.readerLock();
+        try {
+            final int inactive = active;
+            active = 1 - inactive;
+            phaser.flipPhase();
+
+            // Not an atomic get-and-set, and yield in between, so that a writer that raced the flip into the inactive buffer would be lost and fail the test.
+            final long count = buffers[inactive].get();
+            Thread.yield();
+            buffers[inactive].set(0);
+            return count;
+        }
+        finally {
+            phaser.readerUnlock();
+        }
+    }
+}